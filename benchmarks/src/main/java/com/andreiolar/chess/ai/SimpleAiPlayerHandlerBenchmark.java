@@ -0,0 +1,100 @@
+package com.andreiolar.chess.ai;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.andreiolar.chess.benchmark.BenchmarkPositions;
+import com.andreiolar.chess.logic.ChessGame;
+import com.andreiolar.chess.logic.Move;
+
+/**
+ * Measures the hot paths of {@link SimpleAiPlayerHandler}: move generation, static evaluation and a complete fixed-depth search. Lives in
+ * the ai package to reach the package-private generateMoves and evaluateState.
+ **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimpleAiPlayerHandlerBenchmark {
+
+	@Param({BenchmarkPositions.OPENING, BenchmarkPositions.MIDDLEGAME, BenchmarkPositions.ENDGAME})
+	public String fen;
+
+	// Search depth in plies, counting the root move
+	@Param({"4"})
+	public int depth;
+
+	// Search threads of getMove, so its time to depth can be compared for Lazy SMP
+	@Param({"1"})
+	public int threads;
+
+	private SimpleAiPlayerHandler aiPlayerHandler;
+
+	/**
+	 * State of the search benchmark. Sets up a fresh game and player per invocation, so no search benefits from the transposition table
+	 * filled by the previous one.
+	 **/
+	@State(Scope.Thread)
+	public static class SearchState {
+
+		private SimpleAiPlayerHandler aiPlayerHandler;
+
+		@Setup(Level.Invocation)
+		public void setUp(SimpleAiPlayerHandlerBenchmark benchmark) {
+			this.aiPlayerHandler = new SimpleAiPlayerHandler(new ChessGame(benchmark.fen));
+			this.aiPlayerHandler.maxDepth = benchmark.depth;
+			this.aiPlayerHandler.maxTimeMillis = 0;
+			this.aiPlayerHandler.threads = benchmark.threads;
+		}
+
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		// getMove reports its progress on System.out, keep that out of the benchmark output
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+		}));
+
+		this.aiPlayerHandler = new SimpleAiPlayerHandler(new ChessGame(this.fen));
+	}
+
+	@Benchmark
+	public List<Move> generateMoves() {
+		return this.aiPlayerHandler.generateMoves();
+	}
+
+	@Benchmark
+	public int evaluateState() {
+		return this.aiPlayerHandler.evaluateState();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 3)
+	@Measurement(iterations = 10)
+	public Move getMove(SearchState state) {
+		return state.aiPlayerHandler.getMove();
+	}
+
+}
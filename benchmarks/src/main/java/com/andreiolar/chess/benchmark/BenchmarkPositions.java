@@ -0,0 +1,15 @@
+package com.andreiolar.chess.benchmark;
+
+/**
+ * Positions shared by the benchmarks, in FEN. Used as the values of the "fen" parameter of each benchmark.
+ **/
+public final class BenchmarkPositions {
+
+	public static final String OPENING = "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w - - 0 1";
+	public static final String MIDDLEGAME = "r1bqkbr1/p1ppppp1/n4R1p/1p6/P3P3/2N1n2B/RPPPN2P/2BQK3 w - - 0 1";
+	public static final String ENDGAME = "8/5k2/3p4/1p1P4/1P3K2/8/6R1/8 w - - 0 1";
+
+	private BenchmarkPositions() {
+	}
+
+}
@@ -0,0 +1,60 @@
+package com.andreiolar.chess.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.andreiolar.chess.logic.ChessGame;
+import com.andreiolar.chess.logic.MoveGenerator;
+
+/**
+ * Measures {@link ChessGame#makeMove(int)} followed by {@link ChessGame#undoMove(int)} for every move of the side to move.
+ **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MakeUndoMoveBenchmark {
+
+	@Param({BenchmarkPositions.OPENING, BenchmarkPositions.MIDDLEGAME, BenchmarkPositions.ENDGAME})
+	public String fen;
+
+	private ChessGame chessGame;
+	private int[] moves;
+
+	@Setup
+	public void setUp() {
+		this.chessGame = new ChessGame(this.fen);
+
+		int[] buffer = new int[MoveGenerator.MAX_MOVES];
+		int moveCount = MoveGenerator.generateMoves(this.chessGame.getPosition(), buffer);
+
+		this.moves = Arrays.copyOf(buffer, moveCount);
+	}
+
+	@Benchmark
+	public long makeMoveAndUndoMove() {
+		long keys = 0;
+		for (int move : this.moves) {
+			this.chessGame.makeMove(move);
+			keys ^= this.chessGame.getZobristKey();
+			this.chessGame.undoMove(move);
+		}
+
+		return keys;
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.andreiolar.chess.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.andreiolar.chess.logic.ChessGame;
+import com.andreiolar.chess.logic.Move;
+import com.andreiolar.chess.logic.MoveValidator;
+import com.andreiolar.chess.logic.Piece;
+import com.andreiolar.chess.logic.Position;
+
+/**
+ * Measures {@link MoveValidator#isMoveValid(Position, Move, boolean)} the way the GUI uses it: every piece of the side to move against all
+ * 64 target squares. The state is shared, so running with several threads (-t) validates moves on the same position concurrently.
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveValidatorBenchmark {
+
+	@Param({BenchmarkPositions.OPENING, BenchmarkPositions.MIDDLEGAME, BenchmarkPositions.ENDGAME})
+	public String fen;
+
+	private Position position;
+	private Move[] candidateMoves;
+
+	@Setup
+	public void setUp() {
+		ChessGame chessGame = new ChessGame(this.fen);
+		this.position = chessGame.getPosition();
+
+		int color = (chessGame.getGameState() == ChessGame.GAME_STATE_BLACK ? Piece.COLOR_BLACK : Piece.COLOR_WHITE);
+		int pieceCount = Long.bitCount(this.position.getOccupancy(color));
+		this.candidateMoves = new Move[pieceCount * 64];
+
+		int i = 0;
+		for (Piece piece : chessGame.getPieces()) {
+			if (piece.getColor() != color) {
+				continue;
+			}
+
+			for (int row = Piece.ROW_1; row <= Piece.ROW_8; row++) {
+				for (int column = Piece.COLUMN_A; column <= Piece.COLUMN_H; column++) {
+					this.candidateMoves[i++] = new Move(piece.getRow(), piece.getColumn(), row, column);
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	public void isMoveValid(Blackhole blackhole) {
+		for (Move move : this.candidateMoves) {
+			blackhole.consume(MoveValidator.isMoveValid(this.position, move, false));
+		}
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.andreiolar.chess.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.andreiolar.chess.logic.ChessGame;
+import com.andreiolar.chess.logic.Piece;
+
+/**
+ * Compares the square-indexed mailbox behind {@link ChessGame#getNonCapturedPieceAtLocation(int, int)} with the linear scan over the piece
+ * list it replaced. Each invocation looks up all 64 squares, like a full board repaint does.
+ **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PieceLookupBenchmark {
+
+	private ChessGame chessGame;
+
+	@Setup
+	public void setUp() {
+		this.chessGame = new ChessGame();
+	}
+
+	@Benchmark
+	public void mailboxLookup(Blackhole blackhole) {
+		for (int row = Piece.ROW_1; row <= Piece.ROW_8; row++) {
+			for (int column = Piece.COLUMN_A; column <= Piece.COLUMN_H; column++) {
+				blackhole.consume(this.chessGame.getNonCapturedPieceAtLocation(row, column));
+			}
+		}
+	}
+
+	@Benchmark
+	public void listScan(Blackhole blackhole) {
+		List<Piece> pieces = this.chessGame.getPieces();
+		for (int row = Piece.ROW_1; row <= Piece.ROW_8; row++) {
+			for (int column = Piece.COLUMN_A; column <= Piece.COLUMN_H; column++) {
+				blackhole.consume(scanForPiece(pieces, row, column));
+			}
+		}
+	}
+
+	/**
+	 * The lookup as it was done before the mailbox existed.
+	 **/
+	private static Piece scanForPiece(List<Piece> pieces, int row, int column) {
+		for (Piece piece : pieces) {
+			if (piece.getRow() == row && piece.getColumn() == column && piece.isCaptured() == false) {
+				return piece;
+			}
+		}
+
+		return null;
+	}
+
+}
@@ -0,0 +1,74 @@
+package com.andreiolar.chess.ai;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size, direct-mapped cache of static evaluations keyed by Zobrist hash. The same leaf positions come up again in every iteration
+ * of the search and in sibling subtrees reached by transposed moves, so their evaluation is looked up instead of computed again.
+ *
+ * Like the {@link TranspositionTable}, every entry takes two slots of a primitive long array, the key XOR the data and the data itself, so
+ * an entry torn by a concurrent write is treated as a miss. The data word holds the score (bits 0-31) and a marker bit (bit 32) that
+ * tells a stored score of 0 from an empty slot. Probing writes nothing, the searches count their own probes and hits.
+ **/
+public class EvaluationCache {
+
+	private static final int BYTES_PER_ENTRY = 16;
+	private static final long STORED = 1L << 32;
+
+	private final long[] entries;
+	private final int indexMask;
+
+	/**
+	 * Constructor. Allocates the largest power-of-two number of entries that fits into the budget.
+	 *
+	 * @param sizeInMegabytes
+	 *            The memory budget for the cache.
+	 **/
+	public EvaluationCache(int sizeInMegabytes) {
+		if (sizeInMegabytes < 1) {
+			throw new IllegalArgumentException("Invalid sizeInMegabytes: " + sizeInMegabytes);
+		}
+
+		long maxEntries = sizeInMegabytes * 1024L * 1024L / BYTES_PER_ENTRY;
+		int entryCount = Integer.highestOneBit((int) Math.min(maxEntries, 1 << 30));
+		this.entries = new long[entryCount * 2];
+		this.indexMask = entryCount - 1;
+	}
+
+	/**
+	 * Used to look up the evaluation of a position.
+	 *
+	 * @param key
+	 *            The Zobrist key of the position, including the side to move.
+	 *
+	 * @return Returns the data word of the entry, or 0 if the position is not stored. Use {@link #getScore(long)} to read it.
+	 **/
+	public long probe(long key) {
+		int index = ((int) key & this.indexMask) << 1;
+		long data = this.entries[index + 1];
+		if (data != 0 && (this.entries[index] ^ data) == key) {
+			return data;
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Used to store the evaluation of a position, replacing whatever the slot held before.
+	 **/
+	public void store(long key, int score) {
+		int index = ((int) key & this.indexMask) << 1;
+		long data = (score & 0xFFFFFFFFL) | STORED;
+		this.entries[index] = key ^ data;
+		this.entries[index + 1] = data;
+	}
+
+	public static int getScore(long data) {
+		return (int) data;
+	}
+
+	public void clear() {
+		Arrays.fill(this.entries, 0);
+	}
+
+}
@@ -0,0 +1,211 @@
+package com.andreiolar.chess.ai;
+
+import com.andreiolar.chess.logic.MoveGenerator;
+import com.andreiolar.chess.logic.Position;
+
+/**
+ * Staged move generation for one node of the search. Yields the moves in the order they are most likely to cause a cutoff, and only
+ * generates a group of moves once all earlier ones have been searched:
+ *
+ * <ol>
+ * <li>the principal variation move and the hash move, checked for being legal but not generated</li>
+ * <li>the captures and queen promotions, by most valuable victim and least valuable attacker</li>
+ * <li>the two killer moves of the ply, if they are quiet and legal here</li>
+ * <li>the remaining quiet moves, by history score</li>
+ * </ol>
+ *
+ * Within a group the best move is selected on every call instead of sorting the group up front, so a cutoff after the first few moves
+ * does not pay for ordering the rest. A search keeps one picker per ply and reuses it, so picking moves does not allocate.
+ *
+ * For the quiescence search the picker can also be started on the captures alone.
+ **/
+class MovePicker {
+
+	private static final int STAGE_PV_MOVE = 0;
+	private static final int STAGE_HASH_MOVE = 1;
+	private static final int STAGE_GENERATE_CAPTURES = 2;
+	private static final int STAGE_CAPTURES = 3;
+	private static final int STAGE_FIRST_KILLER = 4;
+	private static final int STAGE_SECOND_KILLER = 5;
+	private static final int STAGE_GENERATE_QUIET_MOVES = 6;
+	private static final int STAGE_QUIET_MOVES = 7;
+	private static final int STAGE_DONE = 8;
+
+	// Rank of each piece type (indexed by type) for most valuable victim / least valuable attacker ordering
+	private static final int[] CAPTURE_RANKS = {0, 4, 2, 3, 5, 6, 1};
+
+	private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+	private final int[] scores = new int[MoveGenerator.MAX_MOVES];
+	private int moveCount;
+	private int moveIndex;
+	private int stage;
+
+	private Position position;
+	private int pvMove;
+	private int hashMove;
+	private int firstKiller;
+	private int secondKiller;
+	private int[][] history;
+	private boolean capturesOnly;
+
+	/**
+	 * Used to start picking the moves of a new node.
+	 *
+	 * @param position
+	 *            The position of the node.
+	 *
+	 * @param pvMove
+	 *            The move of the previous principal variation at this node, or 0.
+	 *
+	 * @param hashMove
+	 *            The best move stored in the transposition table for this position, or 0.
+	 *
+	 * @param killers
+	 *            The two killer moves of the ply, 0 for an empty slot.
+	 *
+	 * @param history
+	 *            The history scores of the color to move, indexed by source and target square.
+	 **/
+	void init(Position position, int pvMove, int hashMove, int[] killers, int[][] history) {
+		this.position = position;
+		this.pvMove = pvMove;
+		this.hashMove = hashMove;
+		this.firstKiller = killers[0];
+		this.secondKiller = killers[1];
+		this.history = history;
+		this.capturesOnly = false;
+		this.stage = STAGE_PV_MOVE;
+	}
+
+	/**
+	 * Used to start picking the captures and queen promotions of a new node, and nothing else.
+	 *
+	 * @param position
+	 *            The position of the node.
+	 **/
+	void initCaptures(Position position) {
+		this.position = position;
+		this.pvMove = 0;
+		this.hashMove = 0;
+		this.firstKiller = 0;
+		this.secondKiller = 0;
+		this.capturesOnly = true;
+		this.stage = STAGE_GENERATE_CAPTURES;
+	}
+
+	/**
+	 * Used to get the next move to search.
+	 *
+	 * @return Returns the move, or 0 if all moves have been picked.
+	 **/
+	int next() {
+		while (true) {
+			switch (this.stage) {
+				case STAGE_PV_MOVE :
+					this.stage = STAGE_HASH_MOVE;
+					if (this.pvMove != 0 && MoveGenerator.isLegal(this.position, this.pvMove)) {
+						return this.pvMove;
+					}
+					break;
+				case STAGE_HASH_MOVE :
+					this.stage = STAGE_GENERATE_CAPTURES;
+					if (this.hashMove != 0 && this.hashMove != this.pvMove
+							&& MoveGenerator.isLegal(this.position, this.hashMove)) {
+						return this.hashMove;
+					}
+					break;
+				case STAGE_GENERATE_CAPTURES :
+					this.moveCount = MoveGenerator.generateCaptures(this.position, this.moves);
+					this.moveIndex = 0;
+					for (int i = 0; i < this.moveCount; i++) {
+						this.scores[i] = getCaptureScore(this.moves[i]);
+					}
+					this.stage = STAGE_CAPTURES;
+					break;
+				case STAGE_CAPTURES :
+					int capture = pickBest();
+					if (capture != 0) {
+						return capture;
+					}
+					this.stage = this.capturesOnly ? STAGE_DONE : STAGE_FIRST_KILLER;
+					break;
+				case STAGE_FIRST_KILLER :
+					this.stage = STAGE_SECOND_KILLER;
+					if (isPlayableKiller(this.firstKiller)) {
+						return this.firstKiller;
+					}
+					break;
+				case STAGE_SECOND_KILLER :
+					this.stage = STAGE_GENERATE_QUIET_MOVES;
+					if (this.secondKiller != this.firstKiller && isPlayableKiller(this.secondKiller)) {
+						return this.secondKiller;
+					}
+					break;
+				case STAGE_GENERATE_QUIET_MOVES :
+					this.moveCount = MoveGenerator.generateQuietMoves(this.position, this.moves);
+					this.moveIndex = 0;
+					for (int i = 0; i < this.moveCount; i++) {
+						int move = this.moves[i];
+						this.scores[i] = this.history[MoveGenerator.getSourceSquare(move)][MoveGenerator.getTargetSquare(move)];
+					}
+					this.stage = STAGE_QUIET_MOVES;
+					break;
+				case STAGE_QUIET_MOVES :
+					int quietMove = pickBest();
+					if (quietMove != 0) {
+						return quietMove;
+					}
+					this.stage = STAGE_DONE;
+					break;
+				default :
+					return 0;
+			}
+		}
+	}
+
+	/**
+	 * Used to select the best scored of the moves not picked yet, skipping the ones already returned by an earlier stage. Killer moves
+	 * are only returned early if they are quiet, so they are skipped among the quiet moves only.
+	 *
+	 * @return Returns the move, or 0 if there is none left.
+	 **/
+	private int pickBest() {
+		while (this.moveIndex < this.moveCount) {
+			int best = this.moveIndex;
+			for (int i = this.moveIndex + 1; i < this.moveCount; i++) {
+				if (this.scores[i] > this.scores[best]) {
+					best = i;
+				}
+			}
+
+			int move = this.moves[best];
+			this.moves[best] = this.moves[this.moveIndex];
+			this.scores[best] = this.scores[this.moveIndex];
+			this.moveIndex++;
+
+			if (move != this.pvMove && move != this.hashMove
+					&& (this.stage != STAGE_QUIET_MOVES || (move != this.firstKiller && move != this.secondKiller))) {
+				return move;
+			}
+		}
+
+		return 0;
+	}
+
+	/**
+	 * @return Returns the ordering score of a capture or promotion. A promotion counts like capturing the piece it promotes to.
+	 **/
+	private static int getCaptureScore(int move) {
+		return (CAPTURE_RANKS[MoveGenerator.getCapturedType(move)] + CAPTURE_RANKS[MoveGenerator.getPromotionType(move)]) * 8
+				- CAPTURE_RANKS[MoveGenerator.getPieceType(move)];
+	}
+
+	/**
+	 * @return Returns true if the killer move was not returned yet and is a legal quiet move in this position.
+	 **/
+	private boolean isPlayableKiller(int killer) {
+		return killer != 0 && killer != this.pvMove && killer != this.hashMove && MoveGenerator.isQuiet(killer)
+				&& MoveGenerator.isLegal(this.position, killer);
+	}
+
+}
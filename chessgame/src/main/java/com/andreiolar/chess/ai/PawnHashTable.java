@@ -0,0 +1,87 @@
+package com.andreiolar.chess.ai;
+
+/**
+ * Small direct-mapped cache of pawn structure scores, keyed by the pawn Zobrist key of a position. The pawns change in few of the moves of
+ * a search tree, so most evaluations find their pawn structure here instead of recomputing it, see {@link PawnStructure}.
+ *
+ * An empty slot holds key 0 and score 0, which is also the correct score for a position without pawns, so it needs no separate marker.
+ **/
+public class PawnHashTable {
+
+	private static final int BYTES_PER_ENTRY = 12;
+
+	private final long[] keys;
+	private final int[] scores;
+	private final int indexMask;
+
+	// Statistics only
+	private long probes;
+	private long hits;
+
+	/**
+	 * Constructor. Allocates the largest power-of-two number of entries that fits into the budget.
+	 *
+	 * @param sizeInKilobytes
+	 *            The memory budget for the table.
+	 **/
+	public PawnHashTable(int sizeInKilobytes) {
+		if (sizeInKilobytes < 1) {
+			throw new IllegalArgumentException("Invalid sizeInKilobytes: " + sizeInKilobytes);
+		}
+
+		int entryCount = Integer.highestOneBit(Math.max(sizeInKilobytes * 1024 / BYTES_PER_ENTRY, 1));
+		this.keys = new long[entryCount];
+		this.scores = new int[entryCount];
+		this.indexMask = entryCount - 1;
+	}
+
+	/**
+	 * Used to get the pawn structure score of a position, computing and storing it if it is not cached.
+	 *
+	 * @param pawnKey
+	 *            The pawn Zobrist key of the position.
+	 *
+	 * @param whitePawns
+	 *            The board of the white pawns.
+	 *
+	 * @param blackPawns
+	 *            The board of the black pawns.
+	 *
+	 * @return Returns the pawn structure score from the view of white.
+	 **/
+	public int getScore(long pawnKey, long whitePawns, long blackPawns) {
+		this.probes++;
+
+		int index = (int) pawnKey & this.indexMask;
+		if (this.keys[index] == pawnKey) {
+			this.hits++;
+			return this.scores[index];
+		}
+
+		int score = PawnStructure.evaluate(whitePawns, blackPawns);
+		this.keys[index] = pawnKey;
+		this.scores[index] = score;
+		return score;
+	}
+
+	public long getProbes() {
+		return this.probes;
+	}
+
+	public long getHits() {
+		return this.hits;
+	}
+
+	/**
+	 * @return Returns the share of probes that found their pawn structure, in percent.
+	 **/
+	public double getHitRate() {
+		return this.probes == 0 ? 0 : 100.0 * this.hits / this.probes;
+	}
+
+	public void resetStatistics() {
+		this.probes = 0;
+		this.hits = 0;
+	}
+
+}
@@ -0,0 +1,79 @@
+package com.andreiolar.chess.ai;
+
+import com.andreiolar.chess.logic.Piece;
+import com.andreiolar.chess.logic.Position;
+
+/**
+ * Evaluation terms that only depend on the pawns: doubled, isolated and passed pawns. The result is cached per pawn structure by the
+ * {@link PawnHashTable}, so these do not have to be cheap.
+ **/
+final class PawnStructure {
+
+	private static final int DOUBLED_PAWN_PENALTY = 3;
+	private static final int ISOLATED_PAWN_PENALTY = 2;
+
+	// Indexed by the number of rows the pawn has advanced from the first row of its color
+	private static final int[] PASSED_PAWN_BONUSES = {0, 0, 1, 2, 4, 6, 9, 9};
+
+	private static final long[] FILE_MASKS = new long[8];
+	private static final long[] ADJACENT_FILE_MASKS = new long[8];
+
+	// Squares in front of a pawn, on its own and the adjacent files, that have to be free of opponent pawns for it to be passed
+	private static final long[][] PASSED_PAWN_MASKS = new long[2][64];
+
+	static {
+		for (int column = 0; column < 8; column++) {
+			FILE_MASKS[column] = 0x0101010101010101L << column;
+		}
+		for (int column = 0; column < 8; column++) {
+			ADJACENT_FILE_MASKS[column] = (column > 0 ? FILE_MASKS[column - 1] : 0) | (column < 7 ? FILE_MASKS[column + 1] : 0);
+		}
+		for (int square = 0; square < 64; square++) {
+			int row = Position.getRow(square);
+			long files = FILE_MASKS[Position.getColumn(square)] | ADJACENT_FILE_MASKS[Position.getColumn(square)];
+			long rowsAbove = row < 7 ? -1L << ((row + 1) * 8) : 0;
+			long rowsBelow = row > 0 ? -1L >>> ((8 - row) * 8) : 0;
+			PASSED_PAWN_MASKS[Piece.COLOR_WHITE][square] = files & rowsAbove;
+			PASSED_PAWN_MASKS[Piece.COLOR_BLACK][square] = files & rowsBelow;
+		}
+	}
+
+	private PawnStructure() {
+	}
+
+	/**
+	 * Used to evaluate the pawn structure of both colors.
+	 *
+	 * @return Returns the pawn structure score from the view of white.
+	 **/
+	static int evaluate(long whitePawns, long blackPawns) {
+		return evaluate(Piece.COLOR_WHITE, whitePawns, blackPawns) - evaluate(Piece.COLOR_BLACK, blackPawns, whitePawns);
+	}
+
+	private static int evaluate(int color, long pawns, long opponentPawns) {
+		int score = 0;
+
+		for (int column = 0; column < 8; column++) {
+			int pawnsOnFile = Long.bitCount(pawns & FILE_MASKS[column]);
+			if (pawnsOnFile > 1) {
+				score -= (pawnsOnFile - 1) * DOUBLED_PAWN_PENALTY;
+			}
+		}
+
+		for (long remaining = pawns; remaining != 0; remaining &= remaining - 1) {
+			int square = Long.numberOfTrailingZeros(remaining);
+
+			if ((pawns & ADJACENT_FILE_MASKS[Position.getColumn(square)]) == 0) {
+				score -= ISOLATED_PAWN_PENALTY;
+			}
+
+			if ((opponentPawns & PASSED_PAWN_MASKS[color][square]) == 0) {
+				int row = Position.getRow(square);
+				score += PASSED_PAWN_BONUSES[color == Piece.COLOR_WHITE ? row : 7 - row];
+			}
+		}
+
+		return score;
+	}
+
+}
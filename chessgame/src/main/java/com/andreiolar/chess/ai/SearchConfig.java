@@ -0,0 +1,35 @@
+package com.andreiolar.chess.ai;
+
+/**
+ * Switches for the selective parts of the search in {@link SimpleAiPlayerHandler}. Every technique can be turned off on its own, e.g. to
+ * compare its effect in self-play.
+ **/
+public class SearchConfig {
+
+	/**
+	 * Null-move pruning: let the opponent move twice in a row at reduced depth, and cut the node off if the position still holds.
+	 **/
+	public boolean nullMovePruning = true;
+
+	/**
+	 * The depth reduction of the null-move search, in plies.
+	 **/
+	public int nullMoveReduction = 2;
+
+	/**
+	 * Late move reductions: search quiet moves late in the move order at reduced depth, and only search them again at full depth if they
+	 * turn out better than expected. Not on the principal variation.
+	 **/
+	public boolean lateMoveReductions = true;
+
+	/**
+	 * Futility pruning: near the leaves, skip quiet moves if the static evaluation plus a margin cannot reach alpha.
+	 **/
+	public boolean futilityPruning = true;
+
+	/**
+	 * Reverse futility pruning: near the leaves, cut a node off if the static evaluation minus a margin still beats beta.
+	 **/
+	public boolean reverseFutilityPruning = true;
+
+}
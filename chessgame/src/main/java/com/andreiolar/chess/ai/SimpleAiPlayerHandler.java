@@ -6,24 +6,200 @@ import java.util.List;
 import com.andreiolar.chess.logic.ChessGame;
 import com.andreiolar.chess.logic.IPlayerHandler;
 import com.andreiolar.chess.logic.Move;
-import com.andreiolar.chess.logic.MoveValidator;
+import com.andreiolar.chess.logic.MoveGenerator;
 import com.andreiolar.chess.logic.Piece;
+import com.andreiolar.chess.logic.PieceSquareTables;
+import com.andreiolar.chess.logic.Position;
 
 /**
- * AI player handler. Will act as a computer player. Main AI algorithm used is Minimax with alpha-beta pruning.
+ * AI player handler. Will act as a computer player. Main AI algorithm used is a principal variation search (negamax with alpha-beta
+ * pruning), deepened iteratively within a depth, time and node budget. With more than one thread, helper threads search the same position
+ * alongside (Lazy SMP) and share what they find through the transposition table.
  * 
  * @author Andrei Olar
  **/
 public class SimpleAiPlayerHandler implements IPlayerHandler {
 
+	public static final int DEFAULT_TRANSPOSITION_TABLE_SIZE_MB = 16;
+	public static final int DEFAULT_EVALUATION_CACHE_SIZE_MB = 1;
+	public static final int DEFAULT_PAWN_HASH_TABLE_SIZE_KB = 256;
+	public static final int MAX_DEPTH = 64;
+
+	// Deepest ply the quiescence search may reach below MAX_DEPTH
+	static final int MAX_PLY = MAX_DEPTH + 32;
+
+	// The limits are checked every LIMIT_CHECK_INTERVAL nodes, reading the clock at every node would cost more than it saves
+	private static final int LIMIT_CHECK_INTERVAL = 1024;
+
+	// History scores are halved once one of them exceeds this
+	static final int HISTORY_LIMIT = 1 << 20;
+
+	// A capture is skipped in the quiescence search if winning the captured piece plus this margin cannot raise the score to alpha
+	static final int DELTA_MARGIN = 20;
+
+	// Scores are kept within (-INFINITY, INFINITY). Checkmate scores WIN_SCORE minus the ply, so the fastest win is preferred, and
+	// stalemate scores DRAW_SCORE.
+	static final int INFINITY = 30000;
+	static final int WIN_SCORE = 20000;
+	static final int WIN_SCORE_BOUND = WIN_SCORE - MAX_PLY;
+	static final int DRAW_SCORE = 0;
+
+	// Half width of the first aspiration window around the score of the previous iteration, and the depth it is first used at
+	private static final int ASPIRATION_WINDOW = 15;
+	private static final int ASPIRATION_MIN_DEPTH = 4;
+
+	// Selective search, see SearchConfig: the depth from which a null move is tried, the depth up to which (reverse) futility pruning is
+	// applied with its margin per ply, and the depth and move number from which late moves are reduced
+	private static final int NULL_MOVE_MIN_DEPTH = 3;
+	private static final int FUTILITY_MAX_DEPTH = 3;
+	private static final int FUTILITY_MARGIN = 15;
+	private static final int LATE_MOVE_MIN_DEPTH = 3;
+	private static final int LATE_MOVE_MIN_NUMBER = 3;
+
+	// Lazy SMP: helper i skips the iterations whose depth plus HELPER_SKIP_PHASES[i] falls into an odd block of HELPER_SKIP_SIZES[i]
+	// depths (indexed by (i - 1) % 20), so the helpers spread over the current and the next depth of the main thread
+	private static final int[] HELPER_SKIP_SIZES = {1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 4, 4, 4, 4, 4, 4, 4, 4};
+	private static final int[] HELPER_SKIP_PHASES = {0, 1, 0, 1, 2, 3, 0, 1, 2, 3, 4, 5, 0, 1, 2, 3, 4, 5, 6, 7};
+
+	// Late move reduction in plies, indexed by remaining depth and move number, growing with the logarithm of both
+	private static final int[][] LATE_MOVE_REDUCTIONS = new int[MAX_DEPTH + 1][MoveGenerator.MAX_MOVES];
+
+	// The quiescence search has no killer moves, its plies are not kept
+	static final int[] NO_KILLER_MOVES = new int[2];
+
+	static {
+		for (int depth = 1; depth <= MAX_DEPTH; depth++) {
+			for (int moveNumber = 1; moveNumber < MoveGenerator.MAX_MOVES; moveNumber++) {
+				LATE_MOVE_REDUCTIONS[depth][moveNumber] = (int) (0.75 + Math.log(depth) * Math.log(moveNumber) / 2.25);
+			}
+		}
+	}
+
 	private ChessGame chessGame;
-	private MoveValidator validator;
 
-	public int maxDepth = 2;
+	// The board the search runs on: a snapshot of the game, so the game and the GUI are not touched while searching
+	private Position position;
+	private int[] moveBuffer = new int[MoveGenerator.MAX_MOVES];
+	private MovePicker[] movePickers = new MovePicker[MAX_PLY + 1];
+	private int[] rootMoves = new int[MoveGenerator.MAX_MOVES];
+	private int rootMoveCount;
+	private TranspositionTable transpositionTable;
+	private EvaluationCache evaluationCache;
+	private PawnHashTable pawnHashTable = new PawnHashTable(DEFAULT_PAWN_HASH_TABLE_SIZE_KB);
+	private long nodeCount;
+	private long quiescenceNodeCount;
+	private long deltaPrunedCount;
+
+	// Statistics of the tables shared with the helpers, counted by every searching thread on its own so probing does not write to them
+	private long transpositionTableProbes;
+	private long transpositionTableHits;
+	private long evaluationCacheProbes;
+	private long evaluationCacheHits;
+
+	// Search limits of the running search
+	private long deadline;
+	private long nodeLimit;
+	private int completedDepth;
+	private boolean stopped;
+
+	// Principal variation of the current iteration (triangular table) and of the last completed one
+	private int[][] pvTable = new int[MAX_DEPTH + 1][MAX_DEPTH + 1];
+	private int[] pvLength = new int[MAX_DEPTH + 1];
+	private int[] previousPv = new int[MAX_DEPTH + 1];
+	private int previousPvLength;
+	private boolean followingPv;
+
+	// Quiet moves that caused a beta cutoff: the last two per ply, and a score per color, source and target square
+	private int[][] killerMoves = new int[MAX_DEPTH + 1][2];
+	private int[][][] history = new int[2][64][64];
+
+	// Lazy SMP: the helpers of a main handler and their threads, or the main handler of a helper and its number (from 1)
+	private SimpleAiPlayerHandler[] helpers = new SimpleAiPlayerHandler[0];
+	private Thread[] helperThreads = new Thread[0];
+	private SimpleAiPlayerHandler mainHandler;
+	private int helperIndex;
+	private volatile boolean helpersStopped;
+
+	/**
+	 * The maximum search depth in plies, counting the move to be played.
+	 **/
+	public int maxDepth = MAX_DEPTH;
+
+	/**
+	 * The time budget per move in milliseconds, 0 for no limit.
+	 **/
+	public long maxTimeMillis = 1000;
+
+	/**
+	 * The node budget per move, 0 for no limit.
+	 **/
+	public long maxNodes = 0;
+
+	/**
+	 * Switches for the selective search techniques.
+	 **/
+	public SearchConfig config = new SearchConfig();
+
+	/**
+	 * The number of threads searching a move, the calling thread included. The additional threads are helpers: each searches the same
+	 * position on its own board with its own move ordering, skipping some depths, until the calling thread is done. They share the
+	 * transposition table and the evaluation cache, so the calling thread finds subtrees they searched already. The move played is always
+	 * the one found by the calling thread, within its own budgets.
+	 **/
+	public int threads = 1;
 
 	public SimpleAiPlayerHandler(ChessGame chessGame) {
+		this(chessGame, DEFAULT_TRANSPOSITION_TABLE_SIZE_MB);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param chessGame
+	 *            The game to play.
+	 * 
+	 * @param transpositionTableSizeMb
+	 *            Memory budget of the transposition table in MB, 0 to search without one.
+	 **/
+	public SimpleAiPlayerHandler(ChessGame chessGame, int transpositionTableSizeMb) {
+		this(chessGame, transpositionTableSizeMb, DEFAULT_EVALUATION_CACHE_SIZE_MB);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param chessGame
+	 *            The game to play.
+	 * 
+	 * @param transpositionTableSizeMb
+	 *            Memory budget of the transposition table in MB, 0 to search without one.
+	 * 
+	 * @param evaluationCacheSizeMb
+	 *            Memory budget of the evaluation cache in MB, 0 to evaluate every leaf anew.
+	 **/
+	public SimpleAiPlayerHandler(ChessGame chessGame, int transpositionTableSizeMb, int evaluationCacheSizeMb) {
+		this(chessGame, transpositionTableSizeMb > 0 ? new TranspositionTable(transpositionTableSizeMb) : null,
+				evaluationCacheSizeMb > 0 ? new EvaluationCache(evaluationCacheSizeMb) : null);
+	}
+
+	/**
+	 * Constructor of a helper, which searches with the tables of its main handler.
+	 **/
+	private SimpleAiPlayerHandler(SimpleAiPlayerHandler mainHandler, int helperIndex) {
+		this(mainHandler.chessGame, mainHandler.transpositionTable, mainHandler.evaluationCache);
+		this.mainHandler = mainHandler;
+		this.helperIndex = helperIndex;
+	}
+
+	private SimpleAiPlayerHandler(ChessGame chessGame, TranspositionTable transpositionTable, EvaluationCache evaluationCache) {
 		this.chessGame = chessGame;
-		this.validator = this.chessGame.getMoveValidator();
+		this.transpositionTable = transpositionTable;
+		this.evaluationCache = evaluationCache;
+		takeSnapshot();
+
+		for (int ply = 0; ply <= MAX_PLY; ply++) {
+			this.movePickers[ply] = new MovePicker();
+		}
 	}
 
 	@Override
@@ -32,7 +208,10 @@ public class SimpleAiPlayerHandler implements IPlayerHandler {
 	}
 
 	/**
-	 * Used to get the best move possible. Loops over all moves possible and applies the Minimax algorithm with alpha-beta pruning.
+	 * Used to get the best move possible. Searches the moves with a principal variation search, deepening the search one ply per
+	 * iteration until the depth, time or node budget is used up. The first iteration always completes, later ones are abandoned when a
+	 * budget runs out, and the best move of the last completed iteration is played. The search runs on a snapshot of the game, helpers
+	 * on snapshots of their own.
 	 * 
 	 * @return Returns the best possible move.
 	 **/
@@ -40,45 +219,245 @@ public class SimpleAiPlayerHandler implements IPlayerHandler {
 		System.out.println("Getting best move");
 		System.out.println("Thinking...");
 
-		List<Move> validMoves = generateMoves();
-		int bestResult = Integer.MIN_VALUE;
+		takeSnapshot();
+		long startTime = System.nanoTime();
+		this.deadline = startTime + this.maxTimeMillis * 1000000L;
+		this.nodeLimit = this.maxNodes;
+		if (this.transpositionTable != null) {
+			this.transpositionTable.newSearch();
+		}
+
+		prepareSearch();
+		startHelpers();
 		Move bestMove = null;
+		int bestResult = 0;
 
-		for (Move move : validMoves) {
-			executeMove(move);
-			int evaluationResult = -1 * alphaBetaMax(-9999, 9999, this.maxDepth);
-			undoMove(move);
-			if (evaluationResult > bestResult) {
-				bestResult = evaluationResult;
-				bestMove = move;
+		for (int depth = 1; depth <= Math.min(this.maxDepth, MAX_DEPTH) && this.rootMoveCount > 0; depth++) {
+			bestResult = searchWithAspirationWindow(depth, bestResult);
+			if (this.stopped) {
+				break;
+			}
+
+			completeIteration(depth);
+			bestMove = MoveGenerator.toMove(this.previousPv[0]);
+
+			long elapsedMillis = (System.nanoTime() - startTime) / 1000000L;
+			System.out.println(String.format("Depth %d: score %d, %d nodes, %d quiescence nodes, %d ms, pv %s", depth, bestResult,
+					this.nodeCount, this.quiescenceNodeCount, elapsedMillis, getPvString()));
+
+			// The next iteration takes several times as long as this one, do not start what cannot be finished
+			if (this.maxTimeMillis > 0 && elapsedMillis * 2 > this.maxTimeMillis) {
+				break;
 			}
 		}
 
+		stopHelpers();
+
 		System.out.println("Done thinking! best move is: " + bestMove);
+		System.out.println("Searched " + this.nodeCount + " nodes and " + this.quiescenceNodeCount + " quiescence nodes, " + this.deltaPrunedCount
+				+ " captures delta pruned");
+
+		// The helpers have been joined, so their counts can be read
+		long transpositionTableProbes = this.transpositionTableProbes;
+		long transpositionTableHits = this.transpositionTableHits;
+		long evaluationCacheProbes = this.evaluationCacheProbes;
+		long evaluationCacheHits = this.evaluationCacheHits;
+		long pawnHashTableProbes = this.pawnHashTable.getProbes();
+		long pawnHashTableHits = this.pawnHashTable.getHits();
+		if (this.helperThreads.length > 0) {
+			long helperNodeCount = 0;
+			long helperQuiescenceNodeCount = 0;
+			for (SimpleAiPlayerHandler helper : this.helpers) {
+				helperNodeCount += helper.nodeCount;
+				helperQuiescenceNodeCount += helper.quiescenceNodeCount;
+				transpositionTableProbes += helper.transpositionTableProbes;
+				transpositionTableHits += helper.transpositionTableHits;
+				evaluationCacheProbes += helper.evaluationCacheProbes;
+				evaluationCacheHits += helper.evaluationCacheHits;
+				pawnHashTableProbes += helper.pawnHashTable.getProbes();
+				pawnHashTableHits += helper.pawnHashTable.getHits();
+			}
+			System.out.println(String.format("%d helpers searched %d nodes and %d quiescence nodes", this.helperThreads.length,
+					helperNodeCount, helperQuiescenceNodeCount));
+		}
+		if (this.transpositionTable != null) {
+			System.out.println(String.format("Transposition table: %d probes, %d hits (%.1f%%)", transpositionTableProbes,
+					transpositionTableHits, getHitRate(transpositionTableHits, transpositionTableProbes)));
+		}
+		if (this.evaluationCache != null) {
+			System.out.println(String.format("Evaluation cache: %d hits, %d misses (%.1f%%)", evaluationCacheHits,
+					evaluationCacheProbes - evaluationCacheHits, getHitRate(evaluationCacheHits, evaluationCacheProbes)));
+		}
+		System.out.println(String.format("Pawn hash table: %d probes, %d hits (%.1f%%)", pawnHashTableProbes, pawnHashTableHits,
+				getHitRate(pawnHashTableHits, pawnHashTableProbes)));
 		return bestMove;
 	}
 
 	/**
-	 * The max part of the alpha-beta pruning.
+	 * @return Returns the share of probes that found their entry, in percent.
+	 **/
+	private static double getHitRate(long hits, long probes) {
+		return probes == 0 ? 0 : 100.0 * hits / probes;
+	}
+
+	/**
+	 * Used to reset the state of the previous search and to generate the root moves of the board.
+	 **/
+	private void prepareSearch() {
+		this.nodeCount = 0;
+		this.quiescenceNodeCount = 0;
+		this.deltaPrunedCount = 0;
+		this.transpositionTableProbes = 0;
+		this.transpositionTableHits = 0;
+		this.evaluationCacheProbes = 0;
+		this.evaluationCacheHits = 0;
+		this.pawnHashTable.resetStatistics();
+		this.completedDepth = 0;
+		this.stopped = false;
+		this.previousPvLength = 0;
+		clearMoveOrdering();
+		generateRootMoves();
+	}
+
+	/**
+	 * Used to keep the principal variation of a completed iteration, so the next one searches it first.
+	 **/
+	private void completeIteration(int depth) {
+		this.completedDepth = depth;
+		System.arraycopy(this.pvTable[0], 0, this.previousPv, 0, this.pvLength[0]);
+		this.previousPvLength = this.pvLength[0];
+		putRootMoveFirst(this.pvTable[0][0]);
+	}
+
+	/**
+	 * Used to start the helper threads on copies of the board, if more than one thread is configured. The helpers are kept from move to
+	 * move, with their move ordering tables, as long as the number of threads does not change.
+	 **/
+	private void startHelpers() {
+		int helperCount = this.rootMoveCount > 0 ? Math.max(this.threads - 1, 0) : 0;
+		if (helperCount > 0 && this.helpers.length != helperCount) {
+			this.helpers = new SimpleAiPlayerHandler[helperCount];
+			for (int i = 0; i < helperCount; i++) {
+				this.helpers[i] = new SimpleAiPlayerHandler(this, i + 1);
+			}
+		}
+
+		this.helpersStopped = false;
+		this.helperThreads = new Thread[helperCount];
+		for (int i = 0; i < helperCount; i++) {
+			SimpleAiPlayerHandler helper = this.helpers[i];
+			helper.position = this.position.clone();
+			helper.config = this.config;
+			this.helperThreads[i] = new Thread(helper::searchAsHelper, "SearchHelper-" + helper.helperIndex);
+			this.helperThreads[i].setDaemon(true);
+			this.helperThreads[i].start();
+		}
+	}
+
+	/**
+	 * Used to tell the helpers the search is over and to wait until they have left it.
 	 **/
-	private int alphaBetaMax(int alpha, int beta, int depthLeft) {
-		if (depthLeft == 0 || this.chessGame.getGameState() == ChessGame.GAME_STATE_END_WHITE_WON
-				|| this.chessGame.getGameState() == ChessGame.GAME_STATE_END_BLACK_WON) {
-			return evaluateState();
+	private void stopHelpers() {
+		this.helpersStopped = true;
+		for (Thread helperThread : this.helperThreads) {
+			try {
+				helperThread.join();
+			} catch (InterruptedException ie) {
+				ie.printStackTrace();
+			}
 		}
+	}
 
-		List<Move> moves = generateMoves();
-		for (Move move : moves) {
-			executeMove(move);
-			int score = alphaBetaMin(alpha, beta, depthLeft - 1);
-			undoMove(move);
+	/**
+	 * The search of a helper thread: deepens iteratively like the main search, without budgets, until the main thread stops it. Some
+	 * depths are skipped, differently for every helper, so the helpers do not all search the tree the main thread is searching. Their
+	 * results only reach the main thread through the shared tables.
+	 **/
+	private void searchAsHelper() {
+		prepareSearch();
+		int skipSize = HELPER_SKIP_SIZES[(this.helperIndex - 1) % HELPER_SKIP_SIZES.length];
+		int skipPhase = HELPER_SKIP_PHASES[(this.helperIndex - 1) % HELPER_SKIP_PHASES.length];
+		int result = 0;
+
+		for (int depth = 1; depth <= MAX_DEPTH; depth++) {
+			if (((depth + skipPhase) / skipSize) % 2 != 0) {
+				continue;
+			}
+
+			result = searchWithAspirationWindow(depth, result);
+			if (this.stopped) {
+				return;
+			}
+			completeIteration(depth);
+		}
+	}
+
+	/**
+	 * Used to search the root moves with a narrow window around the score of the previous iteration, which cuts off more nodes than a
+	 * full window. If the score falls outside the window, the search is repeated with the window widened on that side.
+	 * 
+	 * @return Returns the score of the best move.
+	 **/
+	private int searchWithAspirationWindow(int depth, int previousResult) {
+		int window = ASPIRATION_WINDOW;
+		int alpha = -INFINITY;
+		int beta = INFINITY;
+		if (depth >= ASPIRATION_MIN_DEPTH) {
+			alpha = Math.max(previousResult - window, -INFINITY);
+			beta = Math.min(previousResult + window, INFINITY);
+		}
+
+		while (true) {
+			int result = searchRoot(depth, alpha, beta);
+			if (this.stopped) {
+				return result;
+			}
+
+			window *= 2;
+			if (result <= alpha && alpha > -INFINITY) {
+				alpha = Math.max(result - window, -INFINITY);
+			} else if (result >= beta && beta < INFINITY) {
+				beta = Math.min(result + window, INFINITY);
+			} else {
+				return result;
+			}
+		}
+	}
+
+	/**
+	 * Used to search all root moves to the given depth, starting with the best move of the previous iteration.
+	 * 
+	 * @return Returns the score of the best move, which is left at the start of the principal variation, or alpha or beta if the score
+	 *         is outside the window.
+	 **/
+	private int searchRoot(int depth, int alpha, int beta) {
+		this.followingPv = true;
+		int pvMove = getPvMove(0);
+		this.pvLength[0] = 0;
+
+		boolean firstMove = true;
+		for (int i = 0; i < this.rootMoveCount; i++) {
+			int encodedMove = this.rootMoves[i];
+			if (encodedMove != pvMove) {
+				this.followingPv = false;
+			}
+
+			executeMove(encodedMove);
+			int score = searchChild(alpha, beta, depth - 1, 1, firstMove, 0);
+			undoMove(encodedMove);
+			if (this.stopped) {
+				return 0;
+			}
 
+			firstMove = false;
 			if (score >= beta) {
+				updatePv(0, encodedMove);
 				return beta;
 			}
 
 			if (score > alpha) {
 				alpha = score;
+				updatePv(0, encodedMove);
 			}
 		}
 
@@ -86,140 +465,470 @@ public class SimpleAiPlayerHandler implements IPlayerHandler {
 	}
 
 	/**
-	 * The min part of the alpha-beta pruning.
+	 * Used to search the position after a move of the parent node, from the parent's point of view. The first move is searched with the
+	 * full window. The other moves are only expected to prove that they are not better than alpha, so they are searched with a null
+	 * window first, possibly at reduced depth, and searched again at full depth and with the full window if they are.
 	 **/
-	private int alphaBetaMin(int alpha, int beta, int depthLeft) {
-		if (depthLeft == 0 || this.chessGame.getGameState() == ChessGame.GAME_STATE_END_WHITE_WON
-				|| this.chessGame.getGameState() == ChessGame.GAME_STATE_END_BLACK_WON) {
-			return evaluateState();
+	private int searchChild(int alpha, int beta, int depthLeft, int ply, boolean firstMove, int reduction) {
+		if (firstMove) {
+			return -negamax(-beta, -alpha, depthLeft, ply, true);
 		}
 
-		List<Move> moves = generateMoves();
-		for (Move move : moves) {
-			executeMove(move);
-			int score = alphaBetaMax(alpha, beta, depthLeft - 1);
-			undoMove(move);
+		int score = -negamax(-alpha - 1, -alpha, depthLeft - reduction, ply, true);
+		if (score > alpha && reduction > 0 && !this.stopped) {
+			score = -negamax(-alpha - 1, -alpha, depthLeft, ply, true);
+		}
+		if (score > alpha && score < beta && !this.stopped) {
+			score = -negamax(-beta, -alpha, depthLeft, ply, true);
+		}
+		return score;
+	}
+
+	/**
+	 * The alpha-beta search (fail-hard negamax). The score is always seen from the side to move.
+	 * 
+	 * @param allowNullMove
+	 *            False right after a null move, so the side to move cannot pass twice in a row.
+	 **/
+	private int negamax(int alpha, int beta, int depthLeft, int ply, boolean allowNullMove) {
+		this.pvLength[ply] = ply;
+		if (depthLeft <= 0) {
+			return quiescence(alpha, beta, ply);
+		}
+
+		this.nodeCount++;
+		if (isSearchStopped()) {
+			return 0;
+		}
+
+		long key = this.position.getZobristKey();
+		int hashMove = 0;
+		if (this.transpositionTable != null) {
+			long entry = this.transpositionTable.probe(key);
+			this.transpositionTableProbes++;
+			if (entry != 0) {
+				this.transpositionTableHits++;
+				hashMove = TranspositionTable.getMove(entry);
+				if (TranspositionTable.getDepth(entry) >= depthLeft) {
+					int storedScore = fromTranspositionTableScore(TranspositionTable.getScore(entry), ply);
+					int bound = TranspositionTable.getBound(entry);
+					if (bound == TranspositionTable.BOUND_EXACT) {
+						return Math.max(alpha, Math.min(beta, storedScore));
+					} else if (bound == TranspositionTable.BOUND_LOWER && storedScore >= beta) {
+						return beta;
+					} else if (bound == TranspositionTable.BOUND_UPPER && storedScore <= alpha) {
+						return alpha;
+					}
+				}
+			}
+		}
+
+		// Selective search, only away from the principal variation and when the side to move is not in check
+		Position position = this.position;
+		int color = position.getSideToMove();
+		boolean pvNode = beta - alpha > 1;
+		boolean inCheck = position.isInCheck();
+		boolean futile = false;
+		if (!pvNode && !inCheck) {
+			int staticScore = evaluateState();
+
+			// Reverse futility pruning: the opponent is unlikely to win back the margin within the remaining plies
+			if (this.config.reverseFutilityPruning && depthLeft <= FUTILITY_MAX_DEPTH && beta < WIN_SCORE_BOUND
+					&& staticScore - FUTILITY_MARGIN * depthLeft >= beta) {
+				return beta;
+			}
+
+			// Null-move pruning: if passing still beats beta, a real move will as well. Not in pawn endings, where passing would often be
+			// the best move (zugzwang), so the assumption does not hold.
+			if (this.config.nullMovePruning && allowNullMove && depthLeft >= NULL_MOVE_MIN_DEPTH && staticScore >= beta
+					&& beta < WIN_SCORE_BOUND && hasPiecesBesidesPawns(position, color)) {
+				this.followingPv = false;
+				position.makeNullMove();
+				int score = -negamax(-beta, -beta + 1, depthLeft - 1 - this.config.nullMoveReduction, ply + 1, false);
+				position.undoNullMove();
+				if (this.stopped) {
+					return 0;
+				}
+
+				if (score >= beta) {
+					return beta;
+				}
+			}
+
+			// Futility pruning: quiet moves cannot raise the score to alpha within the remaining plies
+			futile = this.config.futilityPruning && depthLeft <= FUTILITY_MAX_DEPTH && alpha > -WIN_SCORE_BOUND
+					&& staticScore + FUTILITY_MARGIN * depthLeft <= alpha;
+		}
+
+		int originalAlpha = alpha;
+		int bestMove = hashMove;
+		int pvMove = getPvMove(ply);
+		MovePicker movePicker = initMovePicker(ply, pvMove, hashMove);
+		boolean firstMove = true;
+		int moveNumber = 0;
+		int encodedMove;
+		while ((encodedMove = movePicker.next()) != 0) {
+			if (encodedMove != pvMove) {
+				this.followingPv = false;
+			}
+
+			moveNumber++;
+			boolean quiet = MoveGenerator.isQuiet(encodedMove);
+			boolean killer = encodedMove == this.killerMoves[ply][0] || encodedMove == this.killerMoves[ply][1];
+			if (futile && !firstMove && quiet) {
+				continue;
+			}
+
+			executeMove(encodedMove);
+
+			int reduction = 0;
+			if (this.config.lateMoveReductions && !firstMove && quiet && !killer && !inCheck && depthLeft >= LATE_MOVE_MIN_DEPTH
+					&& !pvNode && moveNumber >= LATE_MOVE_MIN_NUMBER && !position.isInCheck()) {
+				reduction = Math.min(LATE_MOVE_REDUCTIONS[depthLeft][moveNumber], depthLeft - 2);
+			}
+
+			int score = searchChild(alpha, beta, depthLeft - 1, ply + 1, firstMove, reduction);
+			undoMove(encodedMove);
+			if (this.stopped) {
+				return 0;
+			}
 
-			if (score <= alpha) {
-				return alpha;
+			firstMove = false;
+			if (score >= beta) {
+				if (quiet) {
+					updateQuietMoveOrdering(encodedMove, depthLeft, ply);
+				}
+				storeInTranspositionTable(key, encodedMove, beta, depthLeft, TranspositionTable.BOUND_LOWER, ply);
+				return beta;
 			}
 
-			if (score < beta) {
-				beta = score;
+			if (score > alpha) {
+				alpha = score;
+				bestMove = encodedMove;
+				updatePv(ply, encodedMove);
 			}
 		}
 
-		return beta;
+		// No legal move: checkmate or stalemate. Moves skipped by futility pruning count as legal moves.
+		if (moveNumber == 0) {
+			return Math.max(alpha, Math.min(beta, inCheck ? -WIN_SCORE + ply : DRAW_SCORE));
+		}
+
+		storeInTranspositionTable(key, bestMove, alpha, depthLeft, alpha > originalAlpha ? TranspositionTable.BOUND_EXACT
+				: TranspositionTable.BOUND_UPPER, ply);
+		return alpha;
 	}
 
-	@Override
-	public void moveSuccessfullyExecuted(Move move) {
-		System.out.println("executed: " + move);
+	/**
+	 * @return Returns true if the color has any piece left besides its pawns and king.
+	 **/
+	private static boolean hasPiecesBesidesPawns(Position position, int color) {
+		return (position.getOccupancy(color) & ~position.getPieces(color, Piece.TYPE_PAWN) & ~position.getPieces(color, Piece.TYPE_KING)) != 0;
 	}
 
-	private void undoMove(Move move) {
-		this.chessGame.undoMove(move);
+	/**
+	 * The quiescence search. Only searches captures and queen promotions, so a capture sequence is played out before the position is
+	 * evaluated, and the search cannot stop right before a piece is lost. The side to move may also stand pat, i.e. take the static
+	 * evaluation if no capture does better. In check it may not, and all moves are searched, so checkmate is recognized. Unlike the main
+	 * search, the score is seen from the side to move.
+	 **/
+	private int quiescence(int alpha, int beta, int ply) {
+		this.quiescenceNodeCount++;
+		if (isSearchStopped()) {
+			return 0;
+		}
+
+		if (ply >= MAX_PLY) {
+			return Math.max(alpha, Math.min(beta, evaluateState()));
+		}
+
+		boolean inCheck = this.position.isInCheck();
+		int standPat = 0;
+		MovePicker movePicker = this.movePickers[ply];
+		if (inCheck) {
+			movePicker.init(this.position, 0, 0, NO_KILLER_MOVES, this.history[this.position.getSideToMove()]);
+		} else {
+			standPat = evaluateState();
+			if (standPat >= beta) {
+				return beta;
+			}
+			if (standPat > alpha) {
+				alpha = standPat;
+			}
+			movePicker.initCaptures(this.position);
+		}
+
+		int moveCount = 0;
+		int encodedMove;
+		while ((encodedMove = movePicker.next()) != 0) {
+			moveCount++;
+
+			// Delta pruning: even winning the captured piece for free would not reach alpha
+			if (!inCheck && standPat + getMaterialGain(encodedMove) + DELTA_MARGIN <= alpha) {
+				this.deltaPrunedCount++;
+				continue;
+			}
+
+			executeMove(encodedMove);
+			int score = -quiescence(-beta, -alpha, ply + 1);
+			undoMove(encodedMove);
+			if (this.stopped) {
+				return 0;
+			}
+
+			if (score >= beta) {
+				return beta;
+			}
+			if (score > alpha) {
+				alpha = score;
+			}
+		}
+
+		if (inCheck && moveCount == 0) {
+			return Math.max(alpha, Math.min(beta, -WIN_SCORE + ply));
+		}
+
+		return alpha;
 	}
 
-	private void executeMove(Move move) {
-		this.chessGame.movePiece(move);
-		this.chessGame.changeGameState();
+	/**
+	 * @return Returns the material the side to move wins with a capture or promotion.
+	 **/
+	static int getMaterialGain(int move) {
+		int gain = PieceSquareTables.getPieceValue(MoveGenerator.getCapturedType(move));
+		int promotionType = MoveGenerator.getPromotionType(move);
+		if (promotionType != 0) {
+			gain += PieceSquareTables.getPieceValue(promotionType) - PieceSquareTables.getPieceValue(Piece.TYPE_PAWN);
+		}
+		return gain;
 	}
 
 	/**
-	 * Used to generate all possible moves.
+	 * Used to check the search budgets against the nodes counted so far. The budgets are only enforced once an iteration has completed,
+	 * so there is always a move to play. A helper has no budgets, it stops when its main handler is done.
 	 * 
-	 * @return Returns a list of all possible moves.
+	 * @return Returns true if the search has to be abandoned.
 	 **/
-	private List<Move> generateMoves() {
+	private boolean isSearchStopped() {
+		long nodes = this.nodeCount + this.quiescenceNodeCount;
+		if (nodes % LIMIT_CHECK_INTERVAL == 0) {
+			if (this.mainHandler != null) {
+				this.stopped = this.mainHandler.helpersStopped;
+			} else if (this.completedDepth > 0) {
+				if ((this.nodeLimit > 0 && nodes >= this.nodeLimit) || (this.maxTimeMillis > 0 && System.nanoTime() >= this.deadline)) {
+					this.stopped = true;
+				}
+			}
+		}
 
-		List<Piece> pieces = this.chessGame.getPieces();
-		List<Move> validMoves = new ArrayList<Move>();
-		Move testMove = new Move(0, 0, 0, 0);
+		return this.stopped;
+	}
 
-		int pieceColor = (this.chessGame.getGameState() == ChessGame.GAME_STATE_WHITE ? Piece.COLOR_WHITE : Piece.COLOR_BLACK);
+	/**
+	 * Used to get the move the previous iteration played at this ply, as long as the search is still following its principal variation.
+	 * 
+	 * @return Returns the move, or 0 if the search left the principal variation.
+	 **/
+	private int getPvMove(int ply) {
+		if (this.followingPv && ply < this.previousPvLength) {
+			return this.previousPv[ply];
+		}
 
-		// iterate over all non-captured pieces
-		for (Piece piece : pieces) {
+		this.followingPv = false;
+		return 0;
+	}
 
-			// only look at pieces of current players color
-			if (pieceColor == piece.getColor()) {
-				// start generating move
-				testMove.sourceRow = piece.getRow();
-				testMove.sourceColumn = piece.getColumn();
+	/**
+	 * Used to make a move the best one found at a ply, followed by the best line found below it.
+	 **/
+	private void updatePv(int ply, int move) {
+		this.pvTable[ply][ply] = move;
+		int childLength = this.pvLength[ply + 1];
+		System.arraycopy(this.pvTable[ply + 1], ply + 1, this.pvTable[ply], ply + 1, childLength - (ply + 1));
+		this.pvLength[ply] = Math.max(childLength, ply + 1);
+	}
 
-				// iterate over all board rows and columns
-				for (int targetRow = Piece.ROW_1; targetRow <= Piece.ROW_8; targetRow++) {
-					for (int targetColumn = Piece.COLUMN_A; targetColumn <= Piece.COLUMN_H; targetColumn++) {
+	private String getPvString() {
+		StringBuilder pv = new StringBuilder();
+		for (int i = 0; i < this.previousPvLength; i++) {
+			if (i > 0) {
+				pv.append(", ");
+			}
+			pv.append(MoveGenerator.toMove(this.previousPv[i]));
+		}
+		return pv.toString();
+	}
 
-						testMove.targetRow = targetRow;
-						testMove.targetColumn = targetColumn;
+	private void storeInTranspositionTable(long key, int move, int score, int depth, int bound, int ply) {
+		if (this.transpositionTable != null) {
+			this.transpositionTable.store(key, move, toTranspositionTableScore(score, ply), depth, bound);
+		}
+	}
 
-						if (this.validator.isMoveValid(testMove, true)) {
-							validMoves.add(testMove.clone());
-						}
-					}
+	/**
+	 * Used to store a win as the distance from the position instead of from the root, so the entry is valid for any path reaching it.
+	 **/
+	private static int toTranspositionTableScore(int score, int ply) {
+		if (score > WIN_SCORE_BOUND) {
+			return score + ply;
+		} else if (score < -WIN_SCORE_BOUND) {
+			return score - ply;
+		}
+		return score;
+	}
+
+	private static int fromTranspositionTableScore(int score, int ply) {
+		if (score > WIN_SCORE_BOUND) {
+			return score - ply;
+		} else if (score < -WIN_SCORE_BOUND) {
+			return score + ply;
+		}
+		return score;
+	}
+
+	/**
+	 * Used to prepare the move picker of a ply for the position on the board.
+	 **/
+	private MovePicker initMovePicker(int ply, int pvMove, int hashMove) {
+		MovePicker movePicker = this.movePickers[ply];
+		movePicker.init(this.position, pvMove, hashMove, this.killerMoves[ply], this.history[this.position.getSideToMove()]);
+		return movePicker;
+	}
+
+	/**
+	 * Used to generate the root moves, ordered like the moves of any other node of the first iteration.
+	 **/
+	private void generateRootMoves() {
+		MovePicker movePicker = initMovePicker(0, 0, 0);
+		this.rootMoveCount = 0;
+		int move;
+		while ((move = movePicker.next()) != 0) {
+			this.rootMoves[this.rootMoveCount++] = move;
+		}
+	}
+
+	/**
+	 * Used to remember a quiet move that caused a cutoff, as a killer move for its ply and in the history table of the side that played
+	 * it. Called after the move is taken back, so that side is the side to move.
+	 **/
+	private void updateQuietMoveOrdering(int move, int depthLeft, int ply) {
+		if (this.killerMoves[ply][0] != move) {
+			this.killerMoves[ply][1] = this.killerMoves[ply][0];
+			this.killerMoves[ply][0] = move;
+		}
+
+		int[] historyOfSource = this.history[this.position.getSideToMove()][MoveGenerator.getSourceSquare(move)];
+		historyOfSource[MoveGenerator.getTargetSquare(move)] += depthLeft * depthLeft;
+		if (historyOfSource[MoveGenerator.getTargetSquare(move)] > HISTORY_LIMIT) {
+			ageHistory(this.history);
+		}
+	}
+
+	/**
+	 * Used to forget the killer moves of the previous search, whose plies do not match any more, and to age its history scores.
+	 **/
+	private void clearMoveOrdering() {
+		for (int[] killers : this.killerMoves) {
+			killers[0] = 0;
+			killers[1] = 0;
+		}
+		ageHistory(this.history);
+	}
+
+	static void ageHistory(int[][][] history) {
+		for (int[][] historyOfColor : history) {
+			for (int[] historyOfSource : historyOfColor) {
+				for (int target = 0; target < 64; target++) {
+					historyOfSource[target] /= 2;
 				}
 			}
 		}
-		return validMoves;
 	}
 
 	/**
-	 * Used to evaluate the current state based on specific criteria.
-	 * 
-	 * @return Returns a evaluation score.
+	 * Used to move a root move found best by an earlier search to the front, so it is searched first.
 	 **/
-	private int evaluateState() {
-		int scoreWhite = 0;
-		int scoreBlack = 0;
-		for (Piece piece : this.chessGame.getPieces()) {
-			if (piece.getColor() == Piece.COLOR_BLACK) {
-				scoreBlack += getScoreForPieceType(piece.getType());
-				scoreBlack += getScoreForPiecePosition(piece.getRow(), piece.getColumn());
-			} else if (piece.getColor() == Piece.COLOR_WHITE) {
-				scoreWhite += getScoreForPieceType(piece.getType());
-				scoreWhite += getScoreForPiecePosition(piece.getRow(), piece.getColumn());
-			} else {
-				throw new IllegalStateException("unknown piece color found: " + piece.getColor());
+	private void putRootMoveFirst(int move) {
+		for (int i = 0; i < this.rootMoveCount; i++) {
+			if (this.rootMoves[i] == move) {
+				System.arraycopy(this.rootMoves, 0, this.rootMoves, 1, i);
+				this.rootMoves[0] = move;
+				return;
 			}
 		}
+	}
 
-		int gameState = this.chessGame.getGameState();
+	/**
+	 * Used to copy the position of the game to the board the search runs on.
+	 **/
+	private void takeSnapshot() {
+		this.position = this.chessGame.getPosition().clone();
+	}
 
-		if (gameState == ChessGame.GAME_STATE_BLACK) {
-			return scoreBlack - scoreWhite;
-		} else if (gameState == ChessGame.GAME_STATE_WHITE) {
-			return scoreWhite - scoreBlack;
-		} else if (gameState == ChessGame.GAME_STATE_END_WHITE_WON || gameState == ChessGame.GAME_STATE_END_BLACK_WON) {
-			return Integer.MIN_VALUE + 1;
-		} else {
-			throw new IllegalStateException("unknown game state: " + gameState);
-		}
+	@Override
+	public void moveSuccessfullyExecuted(Move move) {
+		System.out.println("executed: " + move);
 	}
 
-	private int getScoreForPiecePosition(int row, int column) {
-		byte[][] positionWeight = {{1, 1, 1, 1, 1, 1, 1, 1}, {2, 2, 2, 2, 2, 2, 2, 2}, {2, 2, 3, 3, 3, 3, 2, 2}, {2, 2, 3, 4, 4, 3, 2, 2},
-				{2, 2, 3, 4, 4, 3, 2, 2}, {2, 2, 3, 3, 3, 3, 2, 2}, {2, 2, 2, 2, 2, 2, 2, 2}, {1, 1, 1, 1, 1, 1, 1, 1}};
-		return positionWeight[row][column];
+	private void undoMove(int move) {
+		this.position.undoMove(move);
 	}
 
-	private int getScoreForPieceType(int type) {
-		switch (type) {
-			case Piece.TYPE_BISHOP :
-				return 30;
-			case Piece.TYPE_KING :
-				return 99999;
-			case Piece.TYPE_KNIGHT :
-				return 30;
-			case Piece.TYPE_PAWN :
-				return 10;
-			case Piece.TYPE_QUEEN :
-				return 90;
-			case Piece.TYPE_ROOK :
-				return 50;
-			default :
-				throw new IllegalArgumentException("unknown piece type: " + type);
+	private void executeMove(int move) {
+		this.position.makeMove(move);
+	}
+
+	/**
+	 * Used to generate all possible moves.
+	 * 
+	 * @return Returns a list of all possible moves.
+	 **/
+	List<Move> generateMoves() {
+		int moveCount = MoveGenerator.generateMoves(this.position, this.moveBuffer);
+
+		List<Move> validMoves = new ArrayList<Move>(moveCount);
+		for (int i = 0; i < moveCount; i++) {
+			validMoves.add(MoveGenerator.toMove(this.moveBuffer[i]));
 		}
+		return validMoves;
+	}
+
+	/**
+	 * Used to evaluate the current state based on specific criteria. The result is looked up in the evaluation cache first and stored
+	 * there after computing it, so a leaf reached again in a later iteration or through another move order costs a single probe.
+	 * 
+	 * @return Returns a evaluation score.
+	 **/
+	int evaluateState() {
+		if (this.evaluationCache == null) {
+			return evaluatePosition(this.position, this.pawnHashTable);
+		}
+
+		long key = this.position.getZobristKey();
+		long entry = this.evaluationCache.probe(key);
+		this.evaluationCacheProbes++;
+		if (entry != 0) {
+			this.evaluationCacheHits++;
+			return EvaluationCache.getScore(entry);
+		}
+
+		int score = evaluatePosition(this.position, this.pawnHashTable);
+		this.evaluationCache.store(key, score);
+		return score;
+	}
+
+	/**
+	 * Used to compute the evaluation of a position that is not finished. Material and piece-square scores are maintained incrementally by
+	 * the position and the pawn structure score is mostly found in the pawn hash table, so this does not visit the pieces.
+	 * 
+	 * @return Returns the evaluation score from the view of the side to move.
+	 **/
+	static int evaluatePosition(Position position, PawnHashTable pawnHashTable) {
+		int pawnScore = pawnHashTable.getScore(position.getPawnZobristKey(), position.getPieces(Piece.COLOR_WHITE, Piece.TYPE_PAWN),
+				position.getPieces(Piece.COLOR_BLACK, Piece.TYPE_PAWN));
+		int scoreWhite = position.getMaterial(Piece.COLOR_WHITE) + position.getPieceSquareScore(Piece.COLOR_WHITE) + pawnScore;
+		int scoreBlack = position.getMaterial(Piece.COLOR_BLACK) + position.getPieceSquareScore(Piece.COLOR_BLACK);
+
+		return position.getSideToMove() == Piece.COLOR_BLACK ? scoreBlack - scoreWhite : scoreWhite - scoreBlack;
 	}
 }
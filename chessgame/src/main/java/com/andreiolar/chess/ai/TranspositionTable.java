@@ -0,0 +1,109 @@
+package com.andreiolar.chess.ai;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size transposition table keyed by Zobrist hash. Every entry takes two slots of a primitive long array: the key XOR the data, and
+ * the data itself. A reader only accepts an entry if XOR-ing both slots gives back its key, so an entry torn by a concurrent write is
+ * simply treated as a miss. This lets several search threads share one table without locks. Probing writes nothing, the searches count
+ * their own probes and hits.
+ *
+ * The data word holds the best move (bits 0-23), the score (bits 24-39), the remaining depth (bits 40-47), the bound type (bits 48-49) and
+ * the search age (bits 50-55). Scores have to fit into 16 bits.
+ **/
+public class TranspositionTable {
+
+	public static final int BOUND_EXACT = 1;
+	public static final int BOUND_LOWER = 2;
+	public static final int BOUND_UPPER = 3;
+
+	private static final int BYTES_PER_ENTRY = 16;
+
+	private final long[] entries;
+	private final int indexMask;
+	private int age;
+
+	/**
+	 * Constructor. Allocates the largest power-of-two number of entries that fits into the budget.
+	 *
+	 * @param sizeInMegabytes
+	 *            The memory budget for the table.
+	 **/
+	public TranspositionTable(int sizeInMegabytes) {
+		if (sizeInMegabytes < 1) {
+			throw new IllegalArgumentException("Invalid sizeInMegabytes: " + sizeInMegabytes);
+		}
+
+		long maxEntries = sizeInMegabytes * 1024L * 1024L / BYTES_PER_ENTRY;
+		int entryCount = Integer.highestOneBit((int) Math.min(maxEntries, 1 << 30));
+		this.entries = new long[entryCount * 2];
+		this.indexMask = entryCount - 1;
+	}
+
+	/**
+	 * Used to look up a position.
+	 *
+	 * @param key
+	 *            The Zobrist key of the position.
+	 *
+	 * @return Returns the data word of the entry, or 0 if the position is not stored.
+	 **/
+	public long probe(long key) {
+		int index = ((int) key & this.indexMask) << 1;
+		long data = this.entries[index + 1];
+		if (data != 0 && (this.entries[index] ^ data) == key) {
+			return data;
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Used to store the result of a search. An existing entry for another position is only replaced if it stems from an earlier search or
+	 * was searched less deep.
+	 **/
+	public void store(long key, int move, int score, int depth, int bound) {
+		int index = ((int) key & this.indexMask) << 1;
+		long oldData = this.entries[index + 1];
+		if (oldData != 0 && (this.entries[index] ^ oldData) != key && getAge(oldData) == (this.age & 0x3F) && getDepth(oldData) > depth) {
+			return;
+		}
+
+		long data = (move & 0xFFFFFFL) | ((score & 0xFFFFL) << 24) | ((long) (depth & 0xFF) << 40) | ((long) bound << 48)
+				| ((long) (this.age & 0x3F) << 50);
+		this.entries[index] = key ^ data;
+		this.entries[index + 1] = data;
+	}
+
+	/**
+	 * Used to mark the start of a new search. Entries of earlier searches become preferred victims for replacement.
+	 **/
+	public void newSearch() {
+		this.age++;
+	}
+
+	public void clear() {
+		Arrays.fill(this.entries, 0);
+	}
+
+	public static int getMove(long data) {
+		return (int) (data & 0xFFFFFF);
+	}
+
+	public static int getScore(long data) {
+		return (short) (data >>> 24);
+	}
+
+	public static int getDepth(long data) {
+		return (int) ((data >>> 40) & 0xFF);
+	}
+
+	public static int getBound(long data) {
+		return (int) ((data >>> 48) & 0x3);
+	}
+
+	private static int getAge(long data) {
+		return (int) ((data >>> 50) & 0x3F);
+	}
+
+}
@@ -0,0 +1,525 @@
+package com.andreiolar.chess.ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import com.andreiolar.chess.logic.ChessGame;
+import com.andreiolar.chess.logic.IPlayerHandler;
+import com.andreiolar.chess.logic.Move;
+import com.andreiolar.chess.logic.MoveGenerator;
+import com.andreiolar.chess.logic.Position;
+
+/**
+ * Parallel alpha-beta search on a fork-join pool, splitting the tree the Young Brothers Wait way. At a node with enough depth left the
+ * first move, the eldest brother, is searched alone. Only if it does not cause a cutoff are the remaining moves forked as tasks. Every task
+ * searches on its own copy of the board with copies of the move ordering tables of its node, and may split again further down. A task
+ * whose move causes a cutoff cancels its siblings, which notice within a few hundred nodes and give up.
+ *
+ * All siblings are searched with the window their node had after the eldest brother, and nothing they learn flows back into the tables of
+ * the node. So the score, the best move and the principal variation only depend on the position, the depth and the split depth, not on
+ * the number of threads or on timing; only the node count does. This makes the search suited for batch analysis. The price is that there
+ * is no shared transposition table and no selective search: in the same time, {@link SimpleAiPlayerHandler} searches deeper.
+ **/
+public class YoungBrothersWaitSearch implements IPlayerHandler {
+
+	public static final int DEFAULT_SPLIT_DEPTH = 3;
+
+	// Tasks check whether they were cancelled every CANCEL_CHECK_INTERVAL nodes
+	private static final int CANCEL_CHECK_INTERVAL = 256;
+
+	// Every task has its own pawn hash table, so it is kept small
+	private static final int PAWN_HASH_TABLE_SIZE_KB = 16;
+
+	private ChessGame chessGame;
+
+	// Result of the last search
+	private int score;
+	private int[] principalVariation = new int[0];
+	private long nodeCount;
+
+	/**
+	 * The search depth in plies, counting the move to be played.
+	 **/
+	public int maxDepth = 6;
+
+	/**
+	 * The number of worker threads of the fork-join pool.
+	 **/
+	public int threads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * The remaining depth from which the younger brothers of a node are searched as parallel tasks. Shallower nodes are searched
+	 * serially, where forking would cost more than it gains.
+	 **/
+	public int splitDepth = DEFAULT_SPLIT_DEPTH;
+
+	// Created on the first search and again only when the number of threads changed
+	private ForkJoinPool pool;
+
+	public YoungBrothersWaitSearch(ChessGame chessGame) {
+		this.chessGame = chessGame;
+	}
+
+	@Override
+	public Move getMove() {
+		search(this.chessGame.getPosition(), this.maxDepth);
+		return this.principalVariation.length > 0 ? MoveGenerator.toMove(this.principalVariation[0]) : null;
+	}
+
+	@Override
+	public void moveSuccessfullyExecuted(Move move) {
+		System.out.println("executed: " + move);
+	}
+
+	/**
+	 * Used to search a position to a fixed depth, deepening iteratively so every iteration searches the principal variation of the previous
+	 * one first. The position itself is only copied, never changed.
+	 *
+	 * @param position
+	 *            The position to search.
+	 *
+	 * @param depth
+	 *            The depth in plies.
+	 *
+	 * @return Returns the score of the position from the view of the side to move.
+	 **/
+	public int search(final Position position, final int depth) {
+		return getPool().invoke(new RecursiveTask<Integer>() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected Integer compute() {
+				return searchIteratively(position, depth);
+			}
+		});
+	}
+
+	private synchronized ForkJoinPool getPool() {
+		if (this.pool == null || this.pool.getParallelism() != this.threads) {
+			if (this.pool != null) {
+				this.pool.shutdown();
+			}
+			this.pool = new ForkJoinPool(this.threads);
+		}
+		return this.pool;
+	}
+
+	private int searchIteratively(Position position, int depth) {
+		Searcher searcher = new Searcher(position.clone(), new SplitPoint(null), new int[SimpleAiPlayerHandler.MAX_DEPTH + 1][2],
+				new int[2][64][64]);
+		this.score = 0;
+		this.principalVariation = new int[0];
+
+		for (int iterationDepth = 1; iterationDepth <= Math.min(depth, SimpleAiPlayerHandler.MAX_DEPTH); iterationDepth++) {
+			searcher.previousPv = this.principalVariation;
+			searcher.followingPv = true;
+			this.score = searcher.negamax(-SimpleAiPlayerHandler.INFINITY, SimpleAiPlayerHandler.INFINITY, iterationDepth, 0);
+			this.principalVariation = Arrays.copyOf(searcher.pvTable[0], searcher.pvLength[0]);
+		}
+
+		this.nodeCount = searcher.getNodeCount();
+		return this.score;
+	}
+
+	/**
+	 * @return Returns the score of the last search from the view of the side to move.
+	 **/
+	public int getScore() {
+		return this.score;
+	}
+
+	/**
+	 * @return Returns the best line of play found by the last search, starting with the best move.
+	 **/
+	public List<Move> getPrincipalVariation() {
+		List<Move> moves = new ArrayList<Move>(this.principalVariation.length);
+		for (int move : this.principalVariation) {
+			moves.add(MoveGenerator.toMove(move));
+		}
+		return moves;
+	}
+
+	/**
+	 * @return Returns the number of nodes the last search visited, including the ones of cancelled tasks.
+	 **/
+	public long getNodeCount() {
+		return this.nodeCount;
+	}
+
+	/**
+	 * A node whose younger brothers are searched in parallel. Setting cancelled stops the tasks of these brothers and of all split points
+	 * below them.
+	 **/
+	private static final class SplitPoint {
+
+		private final SplitPoint parent;
+		private volatile boolean cancelled;
+
+		private SplitPoint(SplitPoint parent) {
+			this.parent = parent;
+		}
+
+		private boolean isCancelled() {
+			for (SplitPoint splitPoint = this; splitPoint != null; splitPoint = splitPoint.parent) {
+				if (splitPoint.cancelled) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+	}
+
+	/**
+	 * The search of one younger brother, on a board of its own.
+	 **/
+	private final class SiblingTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Searcher parent;
+		private final SplitPoint splitPoint;
+		private final int move;
+		private final int alpha;
+		private final int beta;
+		private final int depthLeft;
+		private final int ply;
+
+		// Result, only valid if the split point was not cancelled
+		private Searcher searcher;
+		private int score;
+
+		private SiblingTask(Searcher parent, SplitPoint splitPoint, int move, int alpha, int beta, int depthLeft, int ply) {
+			this.parent = parent;
+			this.splitPoint = splitPoint;
+			this.move = move;
+			this.alpha = alpha;
+			this.beta = beta;
+			this.depthLeft = depthLeft;
+			this.ply = ply;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.splitPoint.isCancelled()) {
+				return;
+			}
+
+			// The parent waits for its siblings before it touches its board and tables again, so they can be copied here
+			this.searcher = new Searcher(this.parent.position.clone(), this.splitPoint, copyOf(this.parent.killerMoves),
+					copyOf(this.parent.history));
+			int score = this.searcher.searchMove(this.move, this.alpha, this.beta, this.depthLeft, this.ply, false);
+			if (this.searcher.cancelled) {
+				return;
+			}
+
+			this.score = score;
+			if (score >= this.beta) {
+				this.splitPoint.cancelled = true;
+			}
+		}
+
+		private long getNodeCount() {
+			return this.searcher != null ? this.searcher.getNodeCount() : 0;
+		}
+
+	}
+
+	/**
+	 * The state of the search of one task: its board, move pickers, move ordering tables and principal variation. Works like the search
+	 * of {@link SimpleAiPlayerHandler} without transposition table and selective search, except that it hands the younger brothers of
+	 * deep nodes to the pool.
+	 **/
+	private final class Searcher {
+
+		private final Position position;
+		private final SplitPoint splitPoint;
+		private final PawnHashTable pawnHashTable = new PawnHashTable(PAWN_HASH_TABLE_SIZE_KB);
+		private final MovePicker[] movePickers = new MovePicker[SimpleAiPlayerHandler.MAX_PLY + 1];
+		private final int[][] killerMoves;
+		private final int[][][] history;
+
+		// Principal variation (triangular table, rows below the root created on first use) and the one of the previous iteration to search
+		// first
+		private final int[][] pvTable = new int[SimpleAiPlayerHandler.MAX_DEPTH + 1][];
+		private final int[] pvLength = new int[SimpleAiPlayerHandler.MAX_DEPTH + 1];
+		private int[] previousPv = new int[0];
+		private boolean followingPv;
+
+		private long nodeCount;
+		private long taskNodeCount;
+		private boolean cancelled;
+
+		private Searcher(Position position, SplitPoint splitPoint, int[][] killerMoves, int[][][] history) {
+			this.position = position;
+			this.splitPoint = splitPoint;
+			this.killerMoves = killerMoves;
+			this.history = history;
+			this.pvTable[0] = new int[SimpleAiPlayerHandler.MAX_DEPTH + 1];
+		}
+
+		/**
+		 * The alpha-beta search (fail-hard negamax). The score is always seen from the side to move.
+		 **/
+		private int negamax(int alpha, int beta, int depthLeft, int ply) {
+			this.pvLength[ply] = ply;
+			if (depthLeft <= 0) {
+				return quiescence(alpha, beta, ply);
+			}
+
+			this.nodeCount++;
+			if (isCancelled()) {
+				return 0;
+			}
+
+			Position position = this.position;
+			boolean inCheck = position.isInCheck();
+			int pvMove = getPvMove(ply);
+			MovePicker movePicker = getMovePicker(ply);
+			movePicker.init(position, pvMove, 0, this.killerMoves[ply], this.history[position.getSideToMove()]);
+
+			// The eldest brother, searched before any of the others
+			int encodedMove = movePicker.next();
+			if (encodedMove == 0) {
+				return clamp(inCheck ? -SimpleAiPlayerHandler.WIN_SCORE + ply : SimpleAiPlayerHandler.DRAW_SCORE, alpha, beta);
+			}
+
+			boolean firstMove = true;
+			do {
+				if (encodedMove != pvMove) {
+					this.followingPv = false;
+				}
+
+				int score = searchMove(encodedMove, alpha, beta, depthLeft, ply, firstMove);
+				if (this.cancelled) {
+					return 0;
+				}
+
+				if (score >= beta) {
+					if (MoveGenerator.isQuiet(encodedMove)) {
+						updateQuietMoveOrdering(encodedMove, depthLeft, ply);
+					}
+					return beta;
+				}
+
+				if (score > alpha) {
+					alpha = score;
+					updatePv(ply, encodedMove, this.pvTable[ply + 1], this.pvLength[ply + 1]);
+				}
+
+				if (firstMove && depthLeft >= YoungBrothersWaitSearch.this.splitDepth) {
+					return searchYoungerBrothers(movePicker, alpha, beta, depthLeft, ply);
+				}
+				firstMove = false;
+			} while ((encodedMove = movePicker.next()) != 0);
+
+			return alpha;
+		}
+
+		/**
+		 * Used to search the remaining moves of a node as parallel tasks, all with the window the node has after its eldest brother. The
+		 * best of them is the first one in move order with the highest score, so the result does not depend on which task finishes first.
+		 **/
+		private int searchYoungerBrothers(MovePicker movePicker, int alpha, int beta, int depthLeft, int ply) {
+			SplitPoint splitPoint = new SplitPoint(this.splitPoint);
+			List<SiblingTask> siblings = new ArrayList<SiblingTask>();
+			int encodedMove;
+			while ((encodedMove = movePicker.next()) != 0) {
+				siblings.add(new SiblingTask(this, splitPoint, encodedMove, alpha, beta, depthLeft, ply));
+			}
+			this.followingPv = false;
+
+			ForkJoinTask.invokeAll(siblings);
+			for (SiblingTask sibling : siblings) {
+				this.taskNodeCount += sibling.getNodeCount();
+			}
+
+			if (this.splitPoint.isCancelled()) {
+				this.cancelled = true;
+				return 0;
+			}
+			// Only a sibling's cutoff cancels the split point on its own
+			if (splitPoint.cancelled) {
+				return beta;
+			}
+
+			for (SiblingTask sibling : siblings) {
+				if (sibling.score > alpha) {
+					alpha = sibling.score;
+					updatePv(ply, sibling.move, sibling.searcher.pvTable[ply + 1], sibling.searcher.pvLength[ply + 1]);
+				}
+			}
+			return alpha;
+		}
+
+		/**
+		 * Used to search the position after a move, from the view of the side that plays it. A move other than the first is only expected
+		 * to prove that it is not better than alpha, so it is searched with a null window first, and with the full window if it is.
+		 **/
+		private int searchMove(int move, int alpha, int beta, int depthLeft, int ply, boolean firstMove) {
+			this.position.makeMove(move);
+			int score;
+			if (firstMove) {
+				score = -negamax(-beta, -alpha, depthLeft - 1, ply + 1);
+			} else {
+				score = -negamax(-alpha - 1, -alpha, depthLeft - 1, ply + 1);
+				if (score > alpha && score < beta && !this.cancelled) {
+					score = -negamax(-beta, -alpha, depthLeft - 1, ply + 1);
+				}
+			}
+			this.position.undoMove(move);
+			return score;
+		}
+
+		/**
+		 * The quiescence search, see {@link SimpleAiPlayerHandler}: captures and queen promotions only, with stand pat and delta pruning,
+		 * or all moves in check.
+		 **/
+		private int quiescence(int alpha, int beta, int ply) {
+			this.nodeCount++;
+			if (isCancelled()) {
+				return 0;
+			}
+
+			Position position = this.position;
+			if (ply >= SimpleAiPlayerHandler.MAX_PLY) {
+				return clamp(SimpleAiPlayerHandler.evaluatePosition(position, this.pawnHashTable), alpha, beta);
+			}
+
+			boolean inCheck = position.isInCheck();
+			int standPat = 0;
+			MovePicker movePicker = getMovePicker(ply);
+			if (inCheck) {
+				movePicker.init(position, 0, 0, SimpleAiPlayerHandler.NO_KILLER_MOVES, this.history[position.getSideToMove()]);
+			} else {
+				standPat = SimpleAiPlayerHandler.evaluatePosition(position, this.pawnHashTable);
+				if (standPat >= beta) {
+					return beta;
+				}
+				if (standPat > alpha) {
+					alpha = standPat;
+				}
+				movePicker.initCaptures(position);
+			}
+
+			int moveCount = 0;
+			int encodedMove;
+			while ((encodedMove = movePicker.next()) != 0) {
+				moveCount++;
+
+				// Delta pruning: even winning the captured piece for free would not reach alpha
+				int materialGain = SimpleAiPlayerHandler.getMaterialGain(encodedMove);
+				if (!inCheck && standPat + materialGain + SimpleAiPlayerHandler.DELTA_MARGIN <= alpha) {
+					continue;
+				}
+
+				position.makeMove(encodedMove);
+				int score = -quiescence(-beta, -alpha, ply + 1);
+				position.undoMove(encodedMove);
+				if (this.cancelled) {
+					return 0;
+				}
+
+				if (score >= beta) {
+					return beta;
+				}
+				if (score > alpha) {
+					alpha = score;
+				}
+			}
+
+			if (inCheck && moveCount == 0) {
+				return clamp(-SimpleAiPlayerHandler.WIN_SCORE + ply, alpha, beta);
+			}
+
+			return alpha;
+		}
+
+		/**
+		 * Used to check every CANCEL_CHECK_INTERVAL nodes whether a split point above this task was cancelled.
+		 *
+		 * @return Returns true if the search of this task has to be abandoned.
+		 **/
+		private boolean isCancelled() {
+			if (this.nodeCount % CANCEL_CHECK_INTERVAL == 0 && this.splitPoint.isCancelled()) {
+				this.cancelled = true;
+			}
+			return this.cancelled;
+		}
+
+		private int getPvMove(int ply) {
+			if (this.followingPv && ply < this.previousPv.length) {
+				return this.previousPv[ply];
+			}
+
+			this.followingPv = false;
+			return 0;
+		}
+
+		/**
+		 * Used to make a move the best one found at a ply, followed by the best line found below it, which may come from another task.
+		 **/
+		private void updatePv(int ply, int move, int[] childPv, int childLength) {
+			if (this.pvTable[ply] == null) {
+				this.pvTable[ply] = new int[SimpleAiPlayerHandler.MAX_DEPTH + 1];
+			}
+
+			this.pvTable[ply][ply] = move;
+			if (childLength > ply + 1) {
+				System.arraycopy(childPv, ply + 1, this.pvTable[ply], ply + 1, childLength - (ply + 1));
+			}
+			this.pvLength[ply] = Math.max(childLength, ply + 1);
+		}
+
+		private void updateQuietMoveOrdering(int move, int depthLeft, int ply) {
+			if (this.killerMoves[ply][0] != move) {
+				this.killerMoves[ply][1] = this.killerMoves[ply][0];
+				this.killerMoves[ply][0] = move;
+			}
+
+			int[] historyOfSource = this.history[this.position.getSideToMove()][MoveGenerator.getSourceSquare(move)];
+			historyOfSource[MoveGenerator.getTargetSquare(move)] += depthLeft * depthLeft;
+			if (historyOfSource[MoveGenerator.getTargetSquare(move)] > SimpleAiPlayerHandler.HISTORY_LIMIT) {
+				SimpleAiPlayerHandler.ageHistory(this.history);
+			}
+		}
+
+		private MovePicker getMovePicker(int ply) {
+			if (this.movePickers[ply] == null) {
+				this.movePickers[ply] = new MovePicker();
+			}
+			return this.movePickers[ply];
+		}
+
+		private long getNodeCount() {
+			return this.nodeCount + this.taskNodeCount;
+		}
+
+	}
+
+	private static int clamp(int score, int alpha, int beta) {
+		return Math.max(alpha, Math.min(beta, score));
+	}
+
+	private static int[][] copyOf(int[][] table) {
+		int[][] copy = new int[table.length][];
+		for (int i = 0; i < table.length; i++) {
+			copy[i] = table[i].clone();
+		}
+		return copy;
+	}
+
+	private static int[][][] copyOf(int[][][] table) {
+		int[][][] copy = new int[table.length][][];
+		for (int i = 0; i < table.length; i++) {
+			copy[i] = copyOf(table[i]);
+		}
+		return copy;
+	}
+
+}
@@ -10,7 +10,7 @@ import com.andreiolar.chess.logic.Move;
 import com.andreiolar.chess.logic.Piece;
 
 /**
- * console gui. example game: e2-e3 a7-a6 e3-e4 f7-f6 d1-e2 f6-f5 e4-f5 a6-a5 e2-e7 a5-a4 e7-e8
+ * console gui. example game: f2-f3 e7-e5 g2-g4 d8-h4
  *
  */
 public class ChessConsole implements IPlayerHandler {
@@ -150,6 +150,9 @@ public class ChessConsole implements IPlayerHandler {
 			case ChessGame.GAME_STATE_END_BLACK_WON :
 				gameStateStr = "black won";
 				break;
+			case ChessGame.GAME_STATE_END_DRAW :
+				gameStateStr = "draw";
+				break;
 			case ChessGame.GAME_STATE_WHITE :
 				gameStateStr = "white";
 				break;
@@ -249,6 +252,8 @@ public class ChessConsole implements IPlayerHandler {
 			System.out.println("game end reached! Black won!");
 		} else if (this.chessGame.getGameState() == ChessGame.GAME_STATE_END_WHITE_WON) {
 			System.out.println("game end reached! White won!");
+		} else if (this.chessGame.getGameState() == ChessGame.GAME_STATE_END_DRAW) {
+			System.out.println("game end reached! Draw!");
 		}
 	}
 
@@ -5,7 +5,9 @@ import java.awt.Graphics;
 import java.awt.Image;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
@@ -19,6 +21,7 @@ import com.andreiolar.chess.logic.IPlayerHandler;
 import com.andreiolar.chess.logic.Move;
 import com.andreiolar.chess.logic.MoveValidator;
 import com.andreiolar.chess.logic.Piece;
+import com.andreiolar.chess.logic.Position;
 
 /**
  * Main GUI class, which represents the player.
@@ -49,6 +52,7 @@ public class ChessGui extends JPanel implements IPlayerHandler {
 
 	private ChessGame chessGame;
 	private List<GuiPiece> guiPieces = new ArrayList<>();
+	private Map<Piece, GuiPiece> guiPieceByPiece = new IdentityHashMap<>();
 
 	private GuiPiece dragPiece;
 
@@ -154,6 +158,9 @@ public class ChessGui extends JPanel implements IPlayerHandler {
 			case ChessGame.GAME_STATE_END_BLACK_WON :
 				state = "black won";
 				break;
+			case ChessGame.GAME_STATE_END_DRAW :
+				state = "draw";
+				break;
 			case ChessGame.GAME_STATE_WHITE :
 				state = "white";
 				break;
@@ -171,6 +178,7 @@ public class ChessGui extends JPanel implements IPlayerHandler {
 		Image img = this.getImageForPiece(piece.getColor(), piece.getType());
 		GuiPiece guiPiece = new GuiPiece(img, piece);
 		this.guiPieces.add(guiPiece);
+		this.guiPieceByPiece.put(piece, guiPiece);
 	}
 
 	/**
@@ -242,16 +250,15 @@ public class ChessGui extends JPanel implements IPlayerHandler {
 
 		// Draw valid target locations if user is dragging a piece
 		if (isUserDraggingPiece()) {
-			MoveValidator moveValidator = this.chessGame.getMoveValidator();
+			Position position = this.chessGame.getPosition();
+			int sourceRow = this.dragPiece.getPiece().getRow();
+			int sourceColumn = this.dragPiece.getPiece().getColumn();
 
 			// Iterate the complete board to check if target locations are valid
 			for (int column = Piece.COLUMN_A; column <= Piece.COLUMN_H; column++) {
 				for (int row = Piece.ROW_1; row <= Piece.ROW_8; row++) {
-					int sourceRow = this.dragPiece.getPiece().getRow();
-					int sourceColumn = this.dragPiece.getPiece().getColumn();
-
 					// Check if target location is valid
-					if (moveValidator.isMoveValid(new Move(sourceRow, sourceColumn, row, column), false)) {
+					if (MoveValidator.isMoveValid(position, sourceRow, sourceColumn, row, column, 0, false)) {
 						int highlightX = convertColumnToX(column);
 						int highlightY = convertRowToY(row);
 
@@ -310,7 +317,7 @@ public class ChessGui extends JPanel implements IPlayerHandler {
 		int targetColumn = ChessGui.convertXToColumn(x);
 
 		Move move = new Move(dragPiece.getPiece().getRow(), dragPiece.getPiece().getColumn(), targetRow, targetColumn);
-		if (this.chessGame.getMoveValidator().isMoveValid(move, true)) {
+		if (MoveValidator.isMoveValid(this.chessGame.getPosition(), move, true)) {
 			this.currentMove = move;
 		} else {
 			dragPiece.resetToUnderlyingPiecePosition();
@@ -352,7 +359,11 @@ public class ChessGui extends JPanel implements IPlayerHandler {
 			throw new IllegalStateException("No gui piece at " + move.targetRow + "/" + move.targetColumn);
 		}
 
-		guiPiece.resetToUnderlyingPiecePosition();
+		// Castling also moves the rook, so all pieces are put back on their squares, and a promoted pawn gets the image of its new type
+		for (GuiPiece piece : this.guiPieces) {
+			piece.resetToUnderlyingPiecePosition();
+		}
+		guiPiece.setImage(this.getImageForPiece(guiPiece.getColor(), guiPiece.getPiece().getType()));
 
 		this.lastMove = move;
 		this.draggingGamePiecesEnabled = false;
@@ -375,13 +386,12 @@ public class ChessGui extends JPanel implements IPlayerHandler {
 	 * @return Returns the {@link GuiPiece} if found, null otherwise.
 	 **/
 	private GuiPiece getGuiPieceAt(int targetRow, int targetColumn) {
-		for (GuiPiece guiPiece : this.guiPieces) {
-			if (guiPiece.getPiece().getRow() == targetRow && guiPiece.getPiece().getColumn() == targetColumn && guiPiece.isCaptured() == false) {
-				return guiPiece;
-			}
+		Piece piece = this.chessGame.getNonCapturedPieceAtLocation(targetRow, targetColumn);
+		if (piece == null) {
+			return null;
 		}
 
-		return null;
+		return this.guiPieceByPiece.get(piece);
 	}
 
 	public static void main(String[] args) {
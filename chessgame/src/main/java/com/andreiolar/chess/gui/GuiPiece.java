@@ -38,6 +38,10 @@ public class GuiPiece {
 		return img;
 	}
 
+	public void setImage(Image img) {
+		this.img = img;
+	}
+
 	public int getWidth() {
 		return img.getHeight(null);
 	}
@@ -0,0 +1,226 @@
+package com.andreiolar.chess.logic;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Computes the attack tables used by {@link AttackTables} and {@link MagicBitboards}. Run by the build (see the exec-maven-plugin in
+ * pom.xml), which writes the result to {@value AttackTables#RESOURCE_NAME} next to the compiled classes, so the engine only has to read
+ * them at startup. Also used as a fallback when the resource is missing, e.g. when running from the IDE without the Maven build.
+ **/
+public class AttackTableGenerator {
+
+	static final int[][] KNIGHT_OFFSETS = {{2, 1}, {1, 2}, {-1, 2}, {-2, 1}, {-2, -1}, {-1, -2}, {1, -2}, {2, -1}};
+	static final int[][] KING_OFFSETS = {{1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}};
+	static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {-1, 1}, {-1, -1}, {1, -1}};
+	static final int[][] ROOK_DIRECTIONS = {{0, 1}, {0, -1}, {1, 0}, {-1, 0}};
+
+	long[] knightAttacks = new long[64];
+	long[] kingAttacks = new long[64];
+	long[][] pawnAttacks = new long[2][64];
+	long[] bishopMagics = new long[64];
+	long[] rookMagics = new long[64];
+	long[][] between = new long[64][64];
+	long[][] line = new long[64][64];
+
+	private long randomState = 0x2545F4914F6CDD1DL;
+
+	/**
+	 * Used to run the generator from the build.
+	 *
+	 * @param args
+	 *            The file to write the tables to.
+	 **/
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			throw new IllegalArgumentException("Usage: AttackTableGenerator <output file>");
+		}
+
+		AttackTableGenerator generator = new AttackTableGenerator();
+		generator.generate();
+
+		File outputFile = new File(args[0]);
+		outputFile.getParentFile().mkdirs();
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outputFile)))) {
+			generator.write(out);
+		}
+
+		System.out.println("AttackTableGenerator: wrote " + outputFile);
+	}
+
+	/**
+	 * Used to compute all tables.
+	 **/
+	void generate() {
+		for (int square = 0; square < 64; square++) {
+			this.knightAttacks[square] = getOffsetAttacks(square, KNIGHT_OFFSETS);
+			this.kingAttacks[square] = getOffsetAttacks(square, KING_OFFSETS);
+			this.pawnAttacks[Piece.COLOR_WHITE][square] = getOffsetAttacks(square, new int[][] {{1, -1}, {1, 1}});
+			this.pawnAttacks[Piece.COLOR_BLACK][square] = getOffsetAttacks(square, new int[][] {{-1, -1}, {-1, 1}});
+		}
+
+		for (int square = 0; square < 64; square++) {
+			this.bishopMagics[square] = findMagic(square, BISHOP_DIRECTIONS);
+			this.rookMagics[square] = findMagic(square, ROOK_DIRECTIONS);
+		}
+
+		for (int from = 0; from < 64; from++) {
+			for (int[][] directions : new int[][][] {BISHOP_DIRECTIONS, ROOK_DIRECTIONS}) {
+				long fromAttacks = getSlidingAttacks(from, 0, directions);
+				for (int to = 0; to < 64; to++) {
+					if ((fromAttacks & (1L << to)) == 0) {
+						continue;
+					}
+
+					long toAttacks = getSlidingAttacks(to, 0, directions);
+					this.line[from][to] = (fromAttacks & toAttacks) | (1L << from) | (1L << to);
+					this.between[from][to] = getSlidingAttacks(from, 1L << to, directions) & getSlidingAttacks(to, 1L << from, directions);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Used to write the tables in the order {@link AttackTables} reads them.
+	 **/
+	void write(DataOutputStream out) throws IOException {
+		out.writeInt(AttackTables.FORMAT_VERSION);
+		writeLongs(out, this.knightAttacks);
+		writeLongs(out, this.kingAttacks);
+		writeLongs(out, this.pawnAttacks[Piece.COLOR_WHITE]);
+		writeLongs(out, this.pawnAttacks[Piece.COLOR_BLACK]);
+		writeLongs(out, this.bishopMagics);
+		writeLongs(out, this.rookMagics);
+		for (int square = 0; square < 64; square++) {
+			writeLongs(out, this.between[square]);
+		}
+		for (int square = 0; square < 64; square++) {
+			writeLongs(out, this.line[square]);
+		}
+	}
+
+	private static void writeLongs(DataOutputStream out, long[] values) throws IOException {
+		for (long value : values) {
+			out.writeLong(value);
+		}
+	}
+
+	/**
+	 * Used to find a magic number that maps every blocker subset of the relevant mask to a slot, without two subsets with different
+	 * attacks sharing a slot.
+	 **/
+	private long findMagic(int square, int[][] directions) {
+		long mask = getRelevantBlockers(square, directions);
+		int shift = 64 - Long.bitCount(mask);
+		int subsetCount = 1 << Long.bitCount(mask);
+		long[] occupancies = new long[subsetCount];
+		long[] attacks = new long[subsetCount];
+
+		// Enumerate all subsets of the mask (Carry-Rippler)
+		long subset = 0;
+		for (int i = 0; i < subsetCount; i++) {
+			occupancies[i] = subset;
+			attacks[i] = getSlidingAttacks(square, subset, directions);
+			subset = (subset - mask) & mask;
+		}
+
+		long[] slots = new long[subsetCount];
+		int[] usedBy = new int[subsetCount];
+		int attempt = 0;
+		while (true) {
+			long magic = nextRandom() & nextRandom() & nextRandom();
+			if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6) {
+				continue;
+			}
+
+			attempt++;
+			boolean collision = false;
+			for (int i = 0; i < subsetCount && !collision; i++) {
+				int index = (int) ((occupancies[i] * magic) >>> shift);
+				if (usedBy[index] != attempt) {
+					usedBy[index] = attempt;
+					slots[index] = attacks[i];
+				} else if (slots[index] != attacks[i]) {
+					collision = true;
+				}
+			}
+
+			if (!collision) {
+				return magic;
+			}
+		}
+	}
+
+	/**
+	 * @return Returns the squares whose occupancy can block the rays from a square. Edge squares are left out, since a piece there cannot
+	 *         hide any further square.
+	 **/
+	static long getRelevantBlockers(int square, int[][] directions) {
+		long mask = 0;
+		for (int[] direction : directions) {
+			int row = Position.getRow(square) + direction[0];
+			int column = Position.getColumn(square) + direction[1];
+
+			while (isOnBoard(row + direction[0], column + direction[1])) {
+				mask |= 1L << Position.getSquare(row, column);
+				row += direction[0];
+				column += direction[1];
+			}
+		}
+
+		return mask;
+	}
+
+	/**
+	 * @return Returns the squares attacked along the rays from a square, walking each ray until it leaves the board or hits a piece.
+	 **/
+	static long getSlidingAttacks(int square, long occupancy, int[][] directions) {
+		long attacks = 0;
+		for (int[] direction : directions) {
+			int row = Position.getRow(square) + direction[0];
+			int column = Position.getColumn(square) + direction[1];
+
+			while (isOnBoard(row, column)) {
+				long bit = 1L << Position.getSquare(row, column);
+				attacks |= bit;
+				if ((occupancy & bit) != 0) {
+					break;
+				}
+
+				row += direction[0];
+				column += direction[1];
+			}
+		}
+
+		return attacks;
+	}
+
+	private static long getOffsetAttacks(int square, int[][] offsets) {
+		long attacks = 0;
+		for (int[] offset : offsets) {
+			int row = Position.getRow(square) + offset[0];
+			int column = Position.getColumn(square) + offset[1];
+
+			if (isOnBoard(row, column)) {
+				attacks |= 1L << Position.getSquare(row, column);
+			}
+		}
+
+		return attacks;
+	}
+
+	private static boolean isOnBoard(int row, int column) {
+		return row >= Piece.ROW_1 && row <= Piece.ROW_8 && column >= Piece.COLUMN_A && column <= Piece.COLUMN_H;
+	}
+
+	private long nextRandom() {
+		this.randomState ^= this.randomState >>> 12;
+		this.randomState ^= this.randomState << 25;
+		this.randomState ^= this.randomState >>> 27;
+		return this.randomState * 0x2545F4914F6CDD1DL;
+	}
+
+}
@@ -0,0 +1,116 @@
+package com.andreiolar.chess.logic;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Precomputed attack tables for knights, kings and pawns, plus the squares between and the full line through any two aligned squares.
+ * Also holds the magic numbers used by {@link MagicBitboards}.
+ *
+ * The tables are generated at build time by {@link AttackTableGenerator} and loaded from the classpath, so they are not recomputed on
+ * every start of the engine.
+ **/
+public class AttackTables {
+
+	static final String RESOURCE_NAME = "attack-tables.bin";
+	static final int FORMAT_VERSION = 1;
+
+	private static final long[] KNIGHT_ATTACKS = new long[64];
+	private static final long[] KING_ATTACKS = new long[64];
+	private static final long[][] PAWN_ATTACKS = new long[2][64];
+	static final long[] BISHOP_MAGICS = new long[64];
+	static final long[] ROOK_MAGICS = new long[64];
+	private static final long[][] BETWEEN = new long[64][64];
+	private static final long[][] LINE = new long[64][64];
+
+	static {
+		try (InputStream resource = AttackTables.class.getResourceAsStream("/" + RESOURCE_NAME)) {
+			if (resource != null) {
+				read(new DataInputStream(new BufferedInputStream(resource)));
+			} else {
+				copyFrom(new AttackTableGenerator());
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not read " + RESOURCE_NAME, e);
+		}
+	}
+
+	private AttackTables() {
+	}
+
+	public static long getKnightAttacks(int square) {
+		return KNIGHT_ATTACKS[square];
+	}
+
+	public static long getKingAttacks(int square) {
+		return KING_ATTACKS[square];
+	}
+
+	/**
+	 * @return Returns the squares a pawn of the given color standing on the square attacks.
+	 **/
+	public static long getPawnAttacks(int color, int square) {
+		return PAWN_ATTACKS[color][square];
+	}
+
+	/**
+	 * @return Returns the squares strictly between two squares on the same row, column or diagonal, or 0 if they are not aligned.
+	 **/
+	public static long getBetween(int square1, int square2) {
+		return BETWEEN[square1][square2];
+	}
+
+	/**
+	 * @return Returns the full row, column or diagonal running through two aligned squares, or 0 if they are not aligned.
+	 **/
+	public static long getLine(int square1, int square2) {
+		return LINE[square1][square2];
+	}
+
+	private static void read(DataInputStream in) throws IOException {
+		int version = in.readInt();
+		if (version != FORMAT_VERSION) {
+			throw new IllegalStateException("Unsupported " + RESOURCE_NAME + " version: " + version);
+		}
+
+		readLongs(in, KNIGHT_ATTACKS);
+		readLongs(in, KING_ATTACKS);
+		readLongs(in, PAWN_ATTACKS[Piece.COLOR_WHITE]);
+		readLongs(in, PAWN_ATTACKS[Piece.COLOR_BLACK]);
+		readLongs(in, BISHOP_MAGICS);
+		readLongs(in, ROOK_MAGICS);
+		for (int square = 0; square < 64; square++) {
+			readLongs(in, BETWEEN[square]);
+		}
+		for (int square = 0; square < 64; square++) {
+			readLongs(in, LINE[square]);
+		}
+	}
+
+	private static void readLongs(DataInputStream in, long[] values) throws IOException {
+		for (int i = 0; i < values.length; i++) {
+			values[i] = in.readLong();
+		}
+	}
+
+	/**
+	 * Used when the generated resource is not on the classpath.
+	 **/
+	private static void copyFrom(AttackTableGenerator generator) {
+		generator.generate();
+
+		System.arraycopy(generator.knightAttacks, 0, KNIGHT_ATTACKS, 0, 64);
+		System.arraycopy(generator.kingAttacks, 0, KING_ATTACKS, 0, 64);
+		System.arraycopy(generator.pawnAttacks[Piece.COLOR_WHITE], 0, PAWN_ATTACKS[Piece.COLOR_WHITE], 0, 64);
+		System.arraycopy(generator.pawnAttacks[Piece.COLOR_BLACK], 0, PAWN_ATTACKS[Piece.COLOR_BLACK], 0, 64);
+		System.arraycopy(generator.bishopMagics, 0, BISHOP_MAGICS, 0, 64);
+		System.arraycopy(generator.rookMagics, 0, ROOK_MAGICS, 0, 64);
+		for (int square = 0; square < 64; square++) {
+			System.arraycopy(generator.between[square], 0, BETWEEN[square], 0, 64);
+			System.arraycopy(generator.line[square], 0, LINE[square], 0, 64);
+		}
+	}
+
+}
@@ -1,6 +1,7 @@
 package com.andreiolar.chess.logic;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -15,11 +16,19 @@ public class ChessGame implements Runnable {
 	public static final int GAME_STATE_BLACK = 1;
 	public static final int GAME_STATE_END_BLACK_WON = 2;
 	public static final int GAME_STATE_END_WHITE_WON = 3;
+	public static final int GAME_STATE_END_DRAW = 4;
+
+	private static final int INITIAL_UNDO_CAPACITY = 256;
 
 	private List<Piece> pieces = new ArrayList<>();
-	private List<Piece> capturedPieces = new ArrayList<Piece>();
+	private Position position = new Position();
+	private Piece[] pieceAtSquare = new Piece[64];
+
+	// Undo stack, one entry per move played: the piece captured by the move (or null) and the game state before it
+	private Piece[] undoCapturedPieces = new Piece[INITIAL_UNDO_CAPACITY];
+	private int[] undoGameStates = new int[INITIAL_UNDO_CAPACITY];
+	private int undoCount;
 
-	private MoveValidator moveValidator;
 	private IPlayerHandler blackPlayerHandler;
 	private IPlayerHandler whitePlayerHandler;
 	private IPlayerHandler activePlayerHandler;
@@ -28,8 +37,6 @@ public class ChessGame implements Runnable {
 	 * Constructor. Used to create all the chess pieces.
 	 **/
 	public ChessGame() {
-		this.moveValidator = new MoveValidator(this);
-
 		createAndAddPiece(Piece.COLOR_WHITE, Piece.TYPE_ROOK, Piece.ROW_1, Piece.COLUMN_A);
 		createAndAddPiece(Piece.COLOR_WHITE, Piece.TYPE_KNIGHT, Piece.ROW_1, Piece.COLUMN_B);
 		createAndAddPiece(Piece.COLOR_WHITE, Piece.TYPE_BISHOP, Piece.ROW_1, Piece.COLUMN_C);
@@ -59,6 +66,72 @@ public class ChessGame implements Runnable {
 			createAndAddPiece(Piece.COLOR_BLACK, Piece.TYPE_PAWN, Piece.ROW_7, currentColumn);
 			currentColumn++;
 		}
+
+		this.position.setState(Piece.COLOR_WHITE, Position.CASTLING_ALL, Position.NO_SQUARE);
+	}
+
+	/**
+	 * Constructor. Used to set up a position given in Forsyth-Edwards Notation (FEN): the piece placement, the side to move, the castling
+	 * rights and the en passant square. The move counters are ignored.
+	 * 
+	 * @param fen
+	 *            The position, e.g. "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1".
+	 **/
+	public ChessGame(String fen) {
+		String[] fields = fen.trim().split("\\s+");
+		int row = Piece.ROW_8;
+		int column = Piece.COLUMN_A;
+		for (char c : fields[0].toCharArray()) {
+			if (c == '/') {
+				row--;
+				column = Piece.COLUMN_A;
+			} else if (c >= '1' && c <= '8') {
+				column += c - '0';
+			} else {
+				int color = Character.isUpperCase(c) ? Piece.COLOR_WHITE : Piece.COLOR_BLACK;
+				int type = Piece.getTypeForFenCharacter(Character.toLowerCase(c));
+				if (type == 0 || row < Piece.ROW_1 || column > Piece.COLUMN_H
+						|| (type == Piece.TYPE_PAWN && (row == Piece.ROW_1 || row == Piece.ROW_8))) {
+					throw new IllegalArgumentException("Invalid FEN: " + fen);
+				}
+
+				createAndAddPiece(color, type, row, column);
+				column++;
+			}
+		}
+
+		// The move generation relies on both kings being on the board
+		if (Long.bitCount(this.position.getPieces(Piece.COLOR_WHITE, Piece.TYPE_KING)) != 1
+				|| Long.bitCount(this.position.getPieces(Piece.COLOR_BLACK, Piece.TYPE_KING)) != 1) {
+			throw new IllegalArgumentException("Invalid FEN, each color needs one king: " + fen);
+		}
+
+		if (fields.length > 1 && fields[1].equals("b")) {
+			this.gameState = GAME_STATE_BLACK;
+		} else {
+			this.gameState = GAME_STATE_WHITE;
+		}
+
+		int castlingRights = 0;
+		if (fields.length > 2) {
+			castlingRights |= fields[2].indexOf('K') >= 0 ? Position.CASTLING_WHITE_KING_SIDE : 0;
+			castlingRights |= fields[2].indexOf('Q') >= 0 ? Position.CASTLING_WHITE_QUEEN_SIDE : 0;
+			castlingRights |= fields[2].indexOf('k') >= 0 ? Position.CASTLING_BLACK_KING_SIDE : 0;
+			castlingRights |= fields[2].indexOf('q') >= 0 ? Position.CASTLING_BLACK_QUEEN_SIDE : 0;
+		}
+
+		int enPassantSquare = Position.NO_SQUARE;
+		if (fields.length > 3 && fields[3].length() == 2) {
+			enPassantSquare = Position.getSquare(fields[3].charAt(1) - '1', fields[3].charAt(0) - 'a');
+		}
+
+		int colorToMove = this.gameState == GAME_STATE_BLACK ? Piece.COLOR_BLACK : Piece.COLOR_WHITE;
+		this.position.setState(colorToMove, castlingRights, enPassantSquare);
+
+		// A king that could be captured means the side to move is wrong
+		if (MoveGenerator.isSquareAttacked(this.position, this.position.getKingSquare(1 - colorToMove), colorToMove)) {
+			throw new IllegalArgumentException("Invalid FEN, the side not to move is in check: " + fen);
+		}
 	}
 
 	/**
@@ -108,12 +181,17 @@ public class ChessGame implements Runnable {
 			swapActivePlayer();
 		}
 
+		// Also covers a game set up in a finished position, when no move was played
+		setGameEndState();
+
 		System.out.println("ChessGame: game ended");
 		// ChessConsole.printCurrentGameState(this);
 		if (this.gameState == ChessGame.GAME_STATE_END_BLACK_WON) {
 			System.out.println("Black won!");
 		} else if (this.gameState == ChessGame.GAME_STATE_END_WHITE_WON) {
 			System.out.println("White won!");
+		} else if (this.gameState == ChessGame.GAME_STATE_END_DRAW) {
+			System.out.println("Draw!");
 		} else {
 			throw new IllegalStateException("Illegal end state: " + this.gameState);
 		}
@@ -146,7 +224,7 @@ public class ChessGame implements Runnable {
 				ie.printStackTrace();
 			}
 
-			if (move != null && !this.moveValidator.isMoveValid(move, true)) {
+			if (move != null && !MoveValidator.isMoveValid(this.position, move, true)) {
 				System.out.println("Provided move was invalid: " + move);
 
 				// ChessConsole.printCurrentGameState(this);
@@ -171,6 +249,8 @@ public class ChessGame implements Runnable {
 	private void createAndAddPiece(int color, int type, int row, int column) {
 		Piece piece = new Piece(color, type, row, column);
 		this.pieces.add(piece);
+		this.position.addPiece(color, type, Position.getSquare(row, column));
+		this.pieceAtSquare[Position.getSquare(row, column)] = piece;
 	}
 
 	/**
@@ -180,114 +260,180 @@ public class ChessGame implements Runnable {
 	 *            The move to be done.
 	 **/
 	public boolean movePiece(Move move) {
-		move.capturedPiece = this.getNonCapturedPieceAtLocation(move.targetRow, move.targetColumn);
-
-		Piece piece = getNonCapturedPieceAtLocation(move.sourceRow, move.sourceColumn);
-
-		// Check if the move is capturing an opponent piece
-		int opponentColor = (piece.getColor() == Piece.COLOR_BLACK ? Piece.COLOR_WHITE : Piece.COLOR_BLACK);
-		if (isNonCapturedPieceAtLocation(opponentColor, move.targetRow, move.targetColumn)) {
-			// handle captured piece
-			Piece opponentPiece = getNonCapturedPieceAtLocation(move.targetRow, move.targetColumn);
-			this.pieces.remove(opponentPiece);
-			this.capturedPieces.add(opponentPiece);
-			opponentPiece.isCaptured(true);
+		makeMove(MoveGenerator.createMove(this.position, move));
+		return true;
+	}
+
+	/**
+	 * Used to play an encoded move, see {@link MoveGenerator}. Does not change the game state. Captured pieces are only marked as such and
+	 * pushed onto the undo stack, no list is changed, so making and undoing a move take constant time and do not allocate. Castling also
+	 * moves the rook, and a promoted pawn changes its type.
+	 * 
+	 * @param move
+	 *            The move to be done, encoded for this position.
+	 **/
+	public void makeMove(int move) {
+		int sourceSquare = MoveGenerator.getSourceSquare(move);
+		int targetSquare = MoveGenerator.getTargetSquare(move);
+		int flags = MoveGenerator.getFlags(move);
+		int capturedSquare = flags == MoveGenerator.FLAG_EN_PASSANT ? Position.getEnPassantCaptureSquare(targetSquare) : targetSquare;
+		Piece piece = this.pieceAtSquare[sourceSquare];
+		Piece capturedPiece = this.pieceAtSquare[capturedSquare];
+
+		if (this.undoCount == this.undoGameStates.length) {
+			this.undoCapturedPieces = Arrays.copyOf(this.undoCapturedPieces, this.undoCount * 2);
+			this.undoGameStates = Arrays.copyOf(this.undoGameStates, this.undoCount * 2);
 		}
+		this.undoCapturedPieces[this.undoCount] = capturedPiece;
+		this.undoGameStates[this.undoCount] = this.gameState;
+		this.undoCount++;
 
-		piece.setRow(move.targetRow);
-		piece.setColumn(move.targetColumn);
+		if (capturedPiece != null) {
+			capturedPiece.isCaptured(true);
+			this.pieceAtSquare[capturedSquare] = null;
+		}
 
-		return true;
+		this.position.makeMove(move);
+		placePiece(piece, sourceSquare, targetSquare);
+
+		int promotionType = MoveGenerator.getPromotionType(move);
+		if (promotionType != 0) {
+			piece.setType(promotionType);
+		} else if (flags == MoveGenerator.FLAG_CASTLING) {
+			int rookSourceSquare = Position.getCastlingRookSourceSquare(targetSquare);
+			placePiece(this.pieceAtSquare[rookSourceSquare], rookSourceSquare, Position.getCastlingRookTargetSquare(targetSquare));
+		}
 	}
 
 	/**
-	 * Used to undo a move. Only used in AI implementation to search for different routes.
+	 * Used to undo the last move played by {@link #makeMove(int)}, including the game state. Used to walk the move tree, e.g. by
+	 * {@link Perft}. The AI searches a copy of the {@link #getPosition() position} instead.
 	 **/
-	public void undoMove(Move move) {
-		Piece piece = getNonCapturedPieceAtLocation(move.targetRow, move.targetColumn);
-
-		piece.setRow(move.sourceRow);
-		piece.setColumn(move.sourceColumn);
-
-		if (move.capturedPiece != null) {
-			move.capturedPiece.setRow(move.targetRow);
-			move.capturedPiece.setColumn(move.targetColumn);
-			move.capturedPiece.isCaptured(false);
-			this.capturedPieces.remove(move.capturedPiece);
-			this.pieces.add(move.capturedPiece);
+	public void undoMove(int move) {
+		int sourceSquare = MoveGenerator.getSourceSquare(move);
+		int targetSquare = MoveGenerator.getTargetSquare(move);
+		int flags = MoveGenerator.getFlags(move);
+		Piece piece = this.pieceAtSquare[targetSquare];
+
+		this.undoCount--;
+		Piece capturedPiece = this.undoCapturedPieces[this.undoCount];
+		this.undoCapturedPieces[this.undoCount] = null;
+		this.gameState = this.undoGameStates[this.undoCount];
+
+		this.position.undoMove(move);
+		placePiece(piece, targetSquare, sourceSquare);
+
+		if (MoveGenerator.getPromotionType(move) != 0) {
+			piece.setType(Piece.TYPE_PAWN);
+		} else if (flags == MoveGenerator.FLAG_CASTLING) {
+			int rookTargetSquare = Position.getCastlingRookTargetSquare(targetSquare);
+			placePiece(this.pieceAtSquare[rookTargetSquare], rookTargetSquare, Position.getCastlingRookSourceSquare(targetSquare));
 		}
 
-		if (piece.getColor() == Piece.COLOR_BLACK) {
-			this.gameState = ChessGame.GAME_STATE_BLACK;
-		} else {
-			this.gameState = ChessGame.GAME_STATE_WHITE;
+		if (capturedPiece != null) {
+			capturedPiece.isCaptured(false);
+			int capturedSquare = flags == MoveGenerator.FLAG_EN_PASSANT ? Position.getEnPassantCaptureSquare(targetSquare) : targetSquare;
+			this.pieceAtSquare[capturedSquare] = capturedPiece;
 		}
 	}
 
 	/**
-	 * Check whether the game ended.
+	 * Used to move a piece object and its mailbox entry. The target square has to be empty.
+	 **/
+	private void placePiece(Piece piece, int sourceSquare, int targetSquare) {
+		piece.setRow(Position.getRow(targetSquare));
+		piece.setColumn(Position.getColumn(targetSquare));
+		this.pieceAtSquare[sourceSquare] = null;
+		this.pieceAtSquare[targetSquare] = piece;
+	}
+
+	/**
+	 * Check whether the game ended, i.e. the side to move is checkmated or stalemated.
 	 * 
 	 * @return Returns true if end condition is reached, false otherwise.
 	 **/
 	private boolean isGameEndConditionReached() {
-		for (Piece piece : this.capturedPieces) {
-			if (piece.getType() == Piece.TYPE_KING) {
-				return true;
-			}
-		}
-
-		return false;
+		return MoveGenerator.generateMoves(this.position, new int[MoveGenerator.MAX_MOVES]) == 0;
 	}
 
+	/**
+	 * Used to get the piece standing on a square. Backed by a square-indexed mailbox, so this is a single array load.
+	 * 
+	 * @return Returns the piece, or null if the square is empty.
+	 **/
 	public Piece getNonCapturedPieceAtLocation(int row, int column) {
-		for (Piece piece : this.pieces) {
-			if (piece.getRow() == row && piece.getColumn() == column && piece.isCaptured() == false) {
-				return piece;
-			}
-		}
-
-		return null;
-	}
-
-	private boolean isNonCapturedPieceAtLocation(int color, int row, int column) {
-		for (Piece piece : this.pieces) {
-			if (piece.getRow() == row && piece.getColumn() == column && piece.isCaptured() == false && piece.getColor() == color) {
-				return true;
-			}
-		}
-
-		return false;
+		return this.pieceAtSquare[Position.getSquare(row, column)];
 	}
 
 	public boolean isNonCapturedPieceAtLocation(int row, int column) {
-		for (Piece piece : this.pieces) {
-			if (piece.getRow() == row && piece.getColumn() == column && piece.isCaptured() == false) {
-				return true;
-			}
-		}
-
-		return false;
+		return this.position.isOccupied(Position.getSquare(row, column));
 	}
 
 	public int getGameState() {
 		return this.gameState;
 	}
 
+	/**
+	 * Used to get a 64-bit key identifying the current position, usable for caching evaluations or detecting transpositions. Updated
+	 * incrementally by {@link #makeMove(int)} and {@link #undoMove(int)}.
+	 * 
+	 * @return Returns the Zobrist key of the position, including the side to move, the castling rights and the en passant square.
+	 **/
+	public long getZobristKey() {
+		return this.position.getZobristKey();
+	}
+
+	/**
+	 * Used to get a 64-bit key identifying the pawn structure, usable for caching evaluation terms that only depend on the pawns. Updated
+	 * incrementally like {@link #getZobristKey()}.
+	 * 
+	 * @return Returns the Zobrist key of the pawns of both colors.
+	 **/
+	public long getPawnZobristKey() {
+		return this.position.getPawnZobristKey();
+	}
+
+	/**
+	 * @return Returns all pieces of the game, the captured ones included, see {@link Piece#isCaptured()}. Meant for the GUI, the search
+	 *         runs on {@link #getPosition()}.
+	 **/
 	public List<Piece> getPieces() {
 		return this.pieces;
 	}
 
 	/**
-	 * Used to change the game state.
+	 * @return Returns the bitboard representation of the current position.
+	 **/
+	public Position getPosition() {
+		return this.position;
+	}
+
+	/**
+	 * Used to get the material of a color. Kept up to date by {@link #makeMove(int)} and {@link #undoMove(int)}, so this does not
+	 * visit the pieces.
+	 * 
+	 * @return Returns the summed values of the non-captured pieces of the color, see {@link PieceSquareTables}.
+	 **/
+	public int getMaterial(int color) {
+		return this.position.getMaterial(color);
+	}
+
+	/**
+	 * Used to get the piece-square score of a color. Kept up to date like {@link #getMaterial(int)}.
+	 * 
+	 * @return Returns the summed scores of the non-captured pieces of the color for the squares they stand on.
+	 **/
+	public int getPieceSquareScore(int color) {
+		return this.position.getPieceSquareScore(color);
+	}
+
+	/**
+	 * Used to change the game state after a move. If the opponent has no legal move left, the game ends: the player who moved wins by
+	 * checkmate, or it is a draw by stalemate.
 	 **/
 	public void changeGameState() {
 		if (this.isGameEndConditionReached()) {
-			if (this.gameState == ChessGame.GAME_STATE_BLACK) {
-				this.gameState = ChessGame.GAME_STATE_END_BLACK_WON;
-			} else if (this.gameState == ChessGame.GAME_STATE_WHITE) {
-				this.gameState = ChessGame.GAME_STATE_END_WHITE_WON;
-			}
-
+			setGameEndState();
 			return;
 		}
 
@@ -300,14 +446,24 @@ public class ChessGame implements Runnable {
 				break;
 			case GAME_STATE_END_WHITE_WON :
 			case GAME_STATE_END_BLACK_WON :
+			case GAME_STATE_END_DRAW :
 				break;
 			default :
 				throw new IllegalStateException("Unknown game state: " + this.gameState);
 		}
 	}
 
-	public MoveValidator getMoveValidator() {
-		return this.moveValidator;
+	/**
+	 * Used to set the end state of a game whose side to move has no legal move: lost if it is in check, a draw otherwise.
+	 **/
+	private void setGameEndState() {
+		if (!this.position.isInCheck()) {
+			this.gameState = GAME_STATE_END_DRAW;
+		} else if (this.position.getSideToMove() == Piece.COLOR_WHITE) {
+			this.gameState = GAME_STATE_END_BLACK_WON;
+		} else {
+			this.gameState = GAME_STATE_END_WHITE_WON;
+		}
 	}
 
 	public IPlayerHandler getActivePlayerHandler() {
@@ -0,0 +1,73 @@
+package com.andreiolar.chess.logic;
+
+/**
+ * Precomputed sliding piece attacks using magic bitboards. For every square the relevant blockers are masked out of the occupancy,
+ * multiplied by a magic number and shifted, which gives a perfect hash into a table of attack sets. Looking up the attacks of a bishop,
+ * rook or queen for any occupancy therefore takes a multiply, a shift and a table load.
+ *
+ * The magic numbers are generated at build time and loaded through {@link AttackTables}, only the attack sets are filled in when the
+ * class is loaded.
+ **/
+public class MagicBitboards {
+
+	private static final long[] BISHOP_MASKS = new long[64];
+	private static final long[] BISHOP_MAGICS = AttackTables.BISHOP_MAGICS;
+	private static final int[] BISHOP_SHIFTS = new int[64];
+	private static final int[] BISHOP_OFFSETS = new int[64];
+	private static final long[] BISHOP_ATTACKS;
+
+	private static final long[] ROOK_MASKS = new long[64];
+	private static final long[] ROOK_MAGICS = AttackTables.ROOK_MAGICS;
+	private static final int[] ROOK_SHIFTS = new int[64];
+	private static final int[] ROOK_OFFSETS = new int[64];
+	private static final long[] ROOK_ATTACKS;
+
+	static {
+		BISHOP_ATTACKS = initSlider(AttackTableGenerator.BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_OFFSETS);
+		ROOK_ATTACKS = initSlider(AttackTableGenerator.ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_OFFSETS);
+	}
+
+	private MagicBitboards() {
+	}
+
+	public static long getBishopAttacks(int square, long occupancy) {
+		return BISHOP_ATTACKS[BISHOP_OFFSETS[square] + (int) (((occupancy & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+	}
+
+	public static long getRookAttacks(int square, long occupancy) {
+		return ROOK_ATTACKS[ROOK_OFFSETS[square] + (int) (((occupancy & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+	}
+
+	public static long getQueenAttacks(int square, long occupancy) {
+		return getBishopAttacks(square, occupancy) | getRookAttacks(square, occupancy);
+	}
+
+	/**
+	 * Used to fill the masks, shifts, offsets and attack table of one slider type from its magic numbers.
+	 *
+	 * @return Returns the attack table shared by all squares.
+	 **/
+	private static long[] initSlider(int[][] directions, long[] masks, long[] magics, int[] shifts, int[] offsets) {
+		int tableSize = 0;
+		for (int square = 0; square < 64; square++) {
+			masks[square] = AttackTableGenerator.getRelevantBlockers(square, directions);
+			shifts[square] = 64 - Long.bitCount(masks[square]);
+			offsets[square] = tableSize;
+			tableSize += 1 << Long.bitCount(masks[square]);
+		}
+
+		long[] table = new long[tableSize];
+		for (int square = 0; square < 64; square++) {
+			// Enumerate all subsets of the mask (Carry-Rippler)
+			long subset = 0;
+			do {
+				int index = (int) ((subset * magics[square]) >>> shifts[square]);
+				table[offsets[square] + index] = AttackTableGenerator.getSlidingAttacks(square, subset, directions);
+				subset = (subset - masks[square]) & masks[square];
+			} while (subset != 0);
+		}
+
+		return table;
+	}
+
+}
@@ -7,8 +7,10 @@ public class Move {
 	public int targetRow;
 	public int targetColumn;
 
-	public int score;
-	public Piece capturedPiece;
+	/**
+	 * The type of the piece a pawn reaching the last row is promoted to, 0 for a queen.
+	 **/
+	public int promotionType;
 
 	public Move(int sourceRow, int sourceColumn, int targetRow, int targetColumn) {
 		this.sourceRow = sourceRow;
@@ -20,12 +22,14 @@ public class Move {
 	@Override
 	public String toString() {
 		return Piece.getColumnString(sourceColumn) + "/" + Piece.getRowString(sourceRow) + " -> " + Piece.getColumnString(targetColumn) + "/"
-				+ Piece.getRowString(targetRow);
+				+ Piece.getRowString(targetRow) + (promotionType != 0 ? "=" + Piece.getTypeString(promotionType) : "");
 	}
 
 	@Override
 	public Move clone() {
-		return new Move(sourceRow, sourceColumn, targetRow, targetColumn);
+		Move move = new Move(sourceRow, sourceColumn, targetRow, targetColumn);
+		move.promotionType = promotionType;
+		return move;
 	}
 
 }
@@ -0,0 +1,559 @@
+package com.andreiolar.chess.logic;
+
+/**
+ * Legal move generator working on a {@link Position}. Emits only the moves the side to move may actually play: magic bitboard lookups for
+ * sliding pieces, precomputed attack tables for knights and kings, pushes, double pushes, captures, en passant captures and promotions for
+ * pawns, and castling.
+ *
+ * Moves that would leave the own king in check are never generated. The position knows the pieces giving check to the side to move, so
+ * in check only captures of the checker, blocks and king moves are tried, and only king moves in double check. Pieces pinned to the king
+ * only move along the pin line. King moves are checked against the attacks of the opponent with the king taken off the board, and en
+ * passant captures, which take two pieces off one row, by looking at the resulting occupancy.
+ *
+ * Moves are encoded as int values holding the source square in bits 0-5, the target square in bits 6-11, the type of the moving piece in
+ * bits 12-14, the type of the captured piece (0 if none) in bits 15-17 and flags for special moves in bits 18-20. They are written to a
+ * buffer supplied by the caller, so generating moves does not allocate. The search, make and undo all work on the encoded moves,
+ * {@link Move} is only used to talk to the players.
+ **/
+public class MoveGenerator {
+
+	/**
+	 * Upper bound for the number of moves in any position, used to size move buffers.
+	 **/
+	public static final int MAX_MOVES = 256;
+
+	public static final int FLAG_DOUBLE_PUSH = 1;
+	public static final int FLAG_EN_PASSANT = 2;
+	public static final int FLAG_CASTLING = 3;
+
+	// Flags above FLAG_CASTLING mark a promotion to the piece type flags - FLAG_CASTLING, i.e. 4 to 7 for a rook to a queen
+	private static final int PROMOTION_FLAGS = FLAG_CASTLING;
+
+	private static final int GENERATE_ALL = 0;
+	private static final int GENERATE_CAPTURES = 1;
+	private static final int GENERATE_QUIET_MOVES = 2;
+
+	private static final long ROW_1_SQUARES = 0xFFL;
+	private static final long ROW_2_SQUARES = ROW_1_SQUARES << 8;
+	private static final long ROW_7_SQUARES = ROW_1_SQUARES << 48;
+	private static final long ROW_8_SQUARES = ROW_1_SQUARES << 56;
+
+	private MoveGenerator() {
+	}
+
+	public static int createMove(int sourceSquare, int targetSquare, int pieceType, int capturedType) {
+		return sourceSquare | (targetSquare << 6) | (pieceType << 12) | (capturedType << 15);
+	}
+
+	public static int createMove(int sourceSquare, int targetSquare, int pieceType, int capturedType, int flags) {
+		return createMove(sourceSquare, targetSquare, pieceType, capturedType) | (flags << 18);
+	}
+
+	/**
+	 * Used to encode a move given by its squares, e.g. one entered by a player. A pawn reaching the last row is promoted to the piece
+	 * type of the move, or to a queen if it has none.
+	 *
+	 * @param position
+	 *            The position the move is played in, which provides the moving and the captured piece and tells special moves.
+	 *
+	 * @return Returns the encoded move.
+	 **/
+	public static int createMove(Position position, Move move) {
+		int sourceSquare = Position.getSquare(move.sourceRow, move.sourceColumn);
+		int targetSquare = Position.getSquare(move.targetRow, move.targetColumn);
+		return createMove(position, sourceSquare, targetSquare, move.promotionType);
+	}
+
+	/**
+	 * Used to encode a move given by its squares without allocating a {@link Move}, see {@link #createMove(Position, Move)}.
+	 *
+	 * @param promotionType
+	 *            The piece type a pawn reaching the last row is promoted to, or 0 for a queen.
+	 *
+	 * @return Returns the encoded move.
+	 **/
+	public static int createMove(Position position, int sourceSquare, int targetSquare, int promotionType) {
+		int pieceType = position.getPieceType(sourceSquare);
+		int capturedType = position.getPieceType(targetSquare);
+		int flags = 0;
+
+		if (pieceType == Piece.TYPE_PAWN) {
+			int targetRow = Position.getRow(targetSquare);
+			boolean diagonal = Position.getColumn(sourceSquare) != Position.getColumn(targetSquare);
+			if (Math.abs(targetSquare - sourceSquare) == 16) {
+				flags = FLAG_DOUBLE_PUSH;
+			} else if (targetSquare == position.getEnPassantSquare() && diagonal) {
+				flags = FLAG_EN_PASSANT;
+				capturedType = Piece.TYPE_PAWN;
+			} else if (targetRow == Piece.ROW_1 || targetRow == Piece.ROW_8) {
+				flags = PROMOTION_FLAGS + (promotionType != 0 ? promotionType : Piece.TYPE_QUEEN);
+			}
+		} else if (pieceType == Piece.TYPE_KING && Math.abs(targetSquare - sourceSquare) == 2) {
+			flags = FLAG_CASTLING;
+		}
+
+		return createMove(sourceSquare, targetSquare, pieceType, capturedType, flags);
+	}
+
+	/**
+	 * Used to decode a move for the players.
+	 *
+	 * @return Returns a new {@link Move} with the source and target squares and the promotion of the encoded move.
+	 **/
+	public static Move toMove(int move) {
+		int sourceSquare = getSourceSquare(move);
+		int targetSquare = getTargetSquare(move);
+		Move decodedMove = new Move(Position.getRow(sourceSquare), Position.getColumn(sourceSquare), Position.getRow(targetSquare),
+				Position.getColumn(targetSquare));
+		decodedMove.promotionType = getPromotionType(move);
+		return decodedMove;
+	}
+
+	public static int getSourceSquare(int move) {
+		return move & 0x3F;
+	}
+
+	public static int getTargetSquare(int move) {
+		return (move >>> 6) & 0x3F;
+	}
+
+	public static int getPieceType(int move) {
+		return (move >>> 12) & 0x7;
+	}
+
+	/**
+	 * @return Returns the type of the captured piece, or 0 if the move does not capture. A pawn for en passant captures.
+	 **/
+	public static int getCapturedType(int move) {
+		return (move >>> 15) & 0x7;
+	}
+
+	public static boolean isCapture(int move) {
+		return getCapturedType(move) != 0;
+	}
+
+	/**
+	 * @return Returns the special move flags: 0 for a normal move, one of the FLAG_* constants, or a promotion.
+	 **/
+	public static int getFlags(int move) {
+		return (move >>> 18) & 0x7;
+	}
+
+	/**
+	 * @return Returns the piece type a pawn is promoted to by the move, or 0 if the move is no promotion.
+	 **/
+	public static int getPromotionType(int move) {
+		int flags = getFlags(move);
+		return flags > PROMOTION_FLAGS ? flags - PROMOTION_FLAGS : 0;
+	}
+
+	/**
+	 * @return Returns true if the move is one of the moves of {@link #generateQuietMoves(Position, int[])}, i.e. neither a capture nor a
+	 *         promotion to a queen.
+	 **/
+	public static boolean isQuiet(int move) {
+		return !isCapture(move) && getPromotionType(move) != Piece.TYPE_QUEEN;
+	}
+
+	/**
+	 * Used to generate all legal moves of the side to move.
+	 *
+	 * @param position
+	 *            The position to generate moves for.
+	 *
+	 * @param moves
+	 *            The buffer the moves are written to. Should hold at least {@link #MAX_MOVES} entries.
+	 *
+	 * @return Returns the number of moves written, 0 if the side to move is checkmated or stalemated.
+	 **/
+	public static int generateMoves(Position position, int[] moves) {
+		return generateMoves(position, GENERATE_ALL, -1L, moves, 0);
+	}
+
+	/**
+	 * Used to generate the legal moves of the side to move that capture an opponent piece or promote a pawn to a queen.
+	 *
+	 * @return Returns the number of moves written.
+	 **/
+	public static int generateCaptures(Position position, int[] moves) {
+		return generateMoves(position, GENERATE_CAPTURES, -1L, moves, 0);
+	}
+
+	/**
+	 * Used to generate the remaining legal moves of the side to move, see {@link #isQuiet(int)}.
+	 *
+	 * @return Returns the number of moves written.
+	 **/
+	public static int generateQuietMoves(Position position, int[] moves) {
+		return generateMoves(position, GENERATE_QUIET_MOVES, -1L, moves, 0);
+	}
+
+	/**
+	 * Used to generate the legal moves of the piece standing on a square.
+	 *
+	 * @param position
+	 *            The position to generate moves for.
+	 *
+	 * @param square
+	 *            The square of the piece to move. Nothing is generated unless it belongs to the side to move.
+	 *
+	 * @param moves
+	 *            The buffer the moves are written to.
+	 *
+	 * @param count
+	 *            The number of moves already in the buffer.
+	 *
+	 * @return Returns the number of moves in the buffer afterwards.
+	 **/
+	public static int generatePieceMoves(Position position, int square, int[] moves, int count) {
+		return generateMoves(position, GENERATE_ALL, 1L << square, moves, count);
+	}
+
+	private static int generateMoves(Position position, int kind, long sourceMask, int[] moves, int count) {
+		int color = position.getSideToMove();
+		int opponentColor = 1 - color;
+		long ownPieces = position.getOccupancy(color);
+		long opponentPieces = position.getOccupancy(opponentColor);
+		long occupancy = ownPieces | opponentPieces;
+		long targetMask = kind == GENERATE_CAPTURES ? opponentPieces : kind == GENERATE_QUIET_MOVES ? ~occupancy : ~ownPieces;
+		int kingSquare = position.getKingSquare(color);
+		long checkers = position.getCheckers();
+
+		// The king may go to any square the opponent does not attack once the king has left its square
+		if ((sourceMask & (1L << kingSquare)) != 0) {
+			long occupancyWithoutKing = occupancy ^ (1L << kingSquare);
+			for (long targets = AttackTables.getKingAttacks(kingSquare) & targetMask; targets != 0; targets &= targets - 1) {
+				int targetSquare = Long.numberOfTrailingZeros(targets);
+				if (getAttackers(position, targetSquare, opponentColor, occupancyWithoutKing) == 0) {
+					moves[count++] = createMove(kingSquare, targetSquare, Piece.TYPE_KING, position.getPieceType(targetSquare));
+				}
+			}
+
+			if (kind != GENERATE_CAPTURES && checkers == 0 && position.getCastlingRights() != 0) {
+				count = addCastlingMoves(position, color, kingSquare, occupancy, moves, count);
+			}
+		}
+
+		// In double check only the king can move
+		if ((checkers & (checkers - 1)) != 0) {
+			return count;
+		}
+
+		// In check, the other pieces have to capture the checker or step between it and the king
+		long checkMask = checkers == 0 ? -1L : checkers | AttackTables.getBetween(kingSquare, Long.numberOfTrailingZeros(checkers));
+		long pinned = getPinnedPieces(position, color, kingSquare);
+
+		long pawns = position.getPieces(color, Piece.TYPE_PAWN);
+		for (long pieces = ownPieces & sourceMask & ~pawns & ~(1L << kingSquare); pieces != 0; pieces &= pieces - 1) {
+			int square = Long.numberOfTrailingZeros(pieces);
+			int pieceType = position.getPieceType(square);
+			long targets = getAttacks(pieceType, square, occupancy) & targetMask & checkMask;
+			if ((pinned & (1L << square)) != 0) {
+				targets &= AttackTables.getLine(kingSquare, square);
+			}
+			count = addMoves(position, square, pieceType, targets, moves, count);
+		}
+
+		for (pawns &= sourceMask; pawns != 0; pawns &= pawns - 1) {
+			int square = Long.numberOfTrailingZeros(pawns);
+			long allowedTargets = checkMask;
+			if ((pinned & (1L << square)) != 0) {
+				allowedTargets &= AttackTables.getLine(kingSquare, square);
+			}
+			count = addPawnMoves(position, color, square, kind, allowedTargets, kingSquare, occupancy, moves, count);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Used to add the moves of a pawn.
+	 *
+	 * @param allowedTargets
+	 *            The squares the pawn may move to without exposing its king, given by the check and the pin of the pawn.
+	 **/
+	private static int addPawnMoves(Position position, int color, int square, int kind, long allowedTargets, int kingSquare, long occupancy,
+			int[] moves, int count) {
+		boolean white = color == Piece.COLOR_WHITE;
+		long promotionSquares = white ? ROW_8_SQUARES : ROW_1_SQUARES;
+
+		if (kind != GENERATE_CAPTURES || ((1L << square) & (white ? ROW_7_SQUARES : ROW_2_SQUARES)) != 0) {
+			int pushSquare = white ? square + 8 : square - 8;
+			long pushBit = 1L << pushSquare;
+			if ((occupancy & pushBit) == 0) {
+				if ((allowedTargets & pushBit) != 0) {
+					if ((promotionSquares & pushBit) != 0) {
+						count = addPromotions(square, pushSquare, 0, kind, moves, count);
+					} else {
+						moves[count++] = createMove(square, pushSquare, Piece.TYPE_PAWN, 0);
+					}
+				}
+
+				// May advance two squares from its first row
+				int doublePushSquare = white ? square + 16 : square - 16;
+				if (kind != GENERATE_CAPTURES && ((1L << square) & (white ? ROW_2_SQUARES : ROW_7_SQUARES)) != 0
+						&& (occupancy & (1L << doublePushSquare)) == 0 && (allowedTargets & (1L << doublePushSquare)) != 0) {
+					moves[count++] = createMove(square, doublePushSquare, Piece.TYPE_PAWN, 0, FLAG_DOUBLE_PUSH);
+				}
+			}
+		}
+
+		if (kind == GENERATE_QUIET_MOVES) {
+			return count;
+		}
+
+		long attacks = AttackTables.getPawnAttacks(color, square);
+		for (long targets = attacks & position.getOccupancy(1 - color) & allowedTargets; targets != 0; targets &= targets - 1) {
+			int targetSquare = Long.numberOfTrailingZeros(targets);
+			if ((promotionSquares & (1L << targetSquare)) != 0) {
+				count = addPromotions(square, targetSquare, position.getPieceType(targetSquare), kind, moves, count);
+			} else {
+				moves[count++] = createMove(square, targetSquare, Piece.TYPE_PAWN, position.getPieceType(targetSquare));
+			}
+		}
+
+		int enPassantSquare = position.getEnPassantSquare();
+		if (enPassantSquare != Position.NO_SQUARE && (attacks & (1L << enPassantSquare)) != 0
+				&& isEnPassantLegal(position, color, square, enPassantSquare, kingSquare, occupancy)) {
+			moves[count++] = createMove(square, enPassantSquare, Piece.TYPE_PAWN, Piece.TYPE_PAWN, FLAG_EN_PASSANT);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Used to add the promotions of a pawn moving onto the last row. Promotions to a queen count as captures, the others only if they
+	 * capture.
+	 **/
+	private static int addPromotions(int sourceSquare, int targetSquare, int capturedType, int kind, int[] moves, int count) {
+		for (int type = Piece.TYPE_QUEEN; type >= Piece.TYPE_ROOK; type--) {
+			boolean capture = capturedType != 0 || type == Piece.TYPE_QUEEN;
+			if (kind == GENERATE_ALL || (kind == GENERATE_CAPTURES) == capture) {
+				moves[count++] = createMove(sourceSquare, targetSquare, Piece.TYPE_PAWN, capturedType, PROMOTION_FLAGS + type);
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Used to add the castling moves of a king that is not in check: the squares between king and rook have to be empty, and the king
+	 * may not pass or land on an attacked square. The castling rights imply that king and rook are still on their squares.
+	 **/
+	private static int addCastlingMoves(Position position, int color, int kingSquare, long occupancy, int[] moves, int count) {
+		int castlingRights = position.getCastlingRights();
+		int kingSide = color == Piece.COLOR_WHITE ? Position.CASTLING_WHITE_KING_SIDE : Position.CASTLING_BLACK_KING_SIDE;
+		int queenSide = color == Piece.COLOR_WHITE ? Position.CASTLING_WHITE_QUEEN_SIDE : Position.CASTLING_BLACK_QUEEN_SIDE;
+
+		if ((castlingRights & kingSide) != 0 && isCastlingPathFree(position, color, kingSquare, kingSquare + 2, occupancy)) {
+			moves[count++] = createMove(kingSquare, kingSquare + 2, Piece.TYPE_KING, 0, FLAG_CASTLING);
+		}
+		if ((castlingRights & queenSide) != 0 && isCastlingPathFree(position, color, kingSquare, kingSquare - 2, occupancy)) {
+			moves[count++] = createMove(kingSquare, kingSquare - 2, Piece.TYPE_KING, 0, FLAG_CASTLING);
+		}
+
+		return count;
+	}
+
+	private static boolean isCastlingPathFree(Position position, int color, int kingSquare, int kingTargetSquare, long occupancy) {
+		int rookSquare = Position.getCastlingRookSourceSquare(kingTargetSquare);
+		int passedSquare = (kingSquare + kingTargetSquare) >>> 1;
+		return (AttackTables.getBetween(kingSquare, rookSquare) & occupancy) == 0
+				&& getAttackers(position, passedSquare, 1 - color, occupancy) == 0
+				&& getAttackers(position, kingTargetSquare, 1 - color, occupancy) == 0;
+	}
+
+	/**
+	 * Used to check an en passant capture, which takes the capturing and the captured pawn off the same row and may therefore uncover an
+	 * attack on the king that no pin mask shows.
+	 **/
+	private static boolean isEnPassantLegal(Position position, int color, int sourceSquare, int targetSquare, int kingSquare,
+			long occupancy) {
+		long capturedBit = 1L << Position.getEnPassantCaptureSquare(targetSquare);
+		long occupancyAfter = (occupancy ^ (1L << sourceSquare) ^ capturedBit) | (1L << targetSquare);
+		return (getAttackers(position, kingSquare, 1 - color, occupancyAfter) & ~capturedBit) == 0;
+	}
+
+	/**
+	 * Used to find the pieces of a color that stand alone between their king and an opponent slider. Such a piece may only move along
+	 * the line between them.
+	 *
+	 * @return Returns the board of the pinned pieces.
+	 **/
+	private static long getPinnedPieces(Position position, int color, int kingSquare) {
+		int opponentColor = 1 - color;
+		long opponentPieces = position.getOccupancy(opponentColor);
+		long opponentQueens = position.getPieces(opponentColor, Piece.TYPE_QUEEN);
+
+		// Opponent sliders that would attack the king if the own pieces were not there
+		long snipers = (MagicBitboards.getRookAttacks(kingSquare, opponentPieces)
+				& (position.getPieces(opponentColor, Piece.TYPE_ROOK) | opponentQueens))
+				| (MagicBitboards.getBishopAttacks(kingSquare, opponentPieces)
+						& (position.getPieces(opponentColor, Piece.TYPE_BISHOP) | opponentQueens));
+
+		long ownPieces = position.getOccupancy(color);
+		long pinned = 0;
+		for (; snipers != 0; snipers &= snipers - 1) {
+			long blockers = AttackTables.getBetween(kingSquare, Long.numberOfTrailingZeros(snipers)) & ownPieces;
+			if (blockers != 0 && (blockers & (blockers - 1)) == 0) {
+				pinned |= blockers;
+			}
+		}
+
+		return pinned;
+	}
+
+	/**
+	 * Used to check whether a move, e.g. one remembered from another position or entered by a player, is legal in this position.
+	 * Decides without generating moves: the move has to match the pieces on its squares and the rules of the moving piece, and the king
+	 * of the side to move may not be attacked afterwards.
+	 *
+	 * @return Returns true if the side to move may play the move.
+	 **/
+	public static boolean isLegal(Position position, int move) {
+		int color = position.getSideToMove();
+		int sourceSquare = getSourceSquare(move);
+		int targetSquare = getTargetSquare(move);
+		int pieceType = getPieceType(move);
+		int capturedType = getCapturedType(move);
+		int flags = getFlags(move);
+		long targetBit = 1L << targetSquare;
+		long occupancy = position.getOccupancy();
+
+		if (!position.isOccupied(color, sourceSquare) || position.getPieceType(sourceSquare) != pieceType
+				|| position.isOccupied(color, targetSquare)) {
+			return false;
+		}
+
+		int kingSquare = position.getKingSquare(color);
+		if (flags == FLAG_CASTLING) {
+			int castlingRight = targetSquare == kingSquare + 2
+					? (color == Piece.COLOR_WHITE ? Position.CASTLING_WHITE_KING_SIDE : Position.CASTLING_BLACK_KING_SIDE)
+					: (color == Piece.COLOR_WHITE ? Position.CASTLING_WHITE_QUEEN_SIDE : Position.CASTLING_BLACK_QUEEN_SIDE);
+			return pieceType == Piece.TYPE_KING && capturedType == 0 && Math.abs(targetSquare - kingSquare) == 2
+					&& (position.getCastlingRights() & castlingRight) != 0 && !position.isInCheck()
+					&& isCastlingPathFree(position, color, kingSquare, targetSquare, occupancy);
+		}
+
+		if (flags == FLAG_EN_PASSANT) {
+			return pieceType == Piece.TYPE_PAWN && capturedType == Piece.TYPE_PAWN && targetSquare == position.getEnPassantSquare()
+					&& (AttackTables.getPawnAttacks(color, sourceSquare) & targetBit) != 0
+					&& isEnPassantLegal(position, color, sourceSquare, targetSquare, kingSquare, occupancy);
+		}
+
+		if (position.getPieceType(targetSquare) != capturedType) {
+			return false;
+		}
+
+		if (pieceType == Piece.TYPE_PAWN) {
+			if (!isPawnMove(position, color, sourceSquare, targetSquare, capturedType, flags)) {
+				return false;
+			}
+		} else if (flags != 0 || (getAttacks(pieceType, sourceSquare, occupancy) & targetBit) == 0) {
+			return false;
+		}
+
+		// The king may not move onto an attacked square, and other pieces may not leave the king attacked
+		long sourceBit = 1L << sourceSquare;
+		if (pieceType == Piece.TYPE_KING) {
+			return getAttackers(position, targetSquare, 1 - color, occupancy ^ sourceBit) == 0;
+		}
+		return (getAttackers(position, kingSquare, 1 - color, (occupancy ^ sourceBit) | targetBit) & ~targetBit) == 0;
+	}
+
+	/**
+	 * @return Returns true if a pawn of the color may move from the source to the target square with the given capture and flags,
+	 *         ignoring the safety of its king. En passant captures are checked separately.
+	 **/
+	private static boolean isPawnMove(Position position, int color, int sourceSquare, int targetSquare, int capturedType, int flags) {
+		boolean white = color == Piece.COLOR_WHITE;
+		int forward = white ? 8 : -8;
+		boolean promotion = Position.getRow(targetSquare) == (white ? Piece.ROW_8 : Piece.ROW_1);
+		if (promotion != (flags > PROMOTION_FLAGS)) {
+			return false;
+		}
+
+		if (capturedType != 0) {
+			return flags != FLAG_DOUBLE_PUSH && (AttackTables.getPawnAttacks(color, sourceSquare) & (1L << targetSquare)) != 0;
+		} else if (targetSquare == sourceSquare + forward) {
+			return flags != FLAG_DOUBLE_PUSH;
+		} else if (targetSquare == sourceSquare + 2 * forward) {
+			return flags == FLAG_DOUBLE_PUSH && Position.getRow(sourceSquare) == (white ? Piece.ROW_2 : Piece.ROW_7)
+					&& !position.isOccupied(sourceSquare + forward);
+		}
+
+		return false;
+	}
+
+	/**
+	 * @return Returns the squares attacked by a piece of the given type other than a pawn standing on the square.
+	 **/
+	private static long getAttacks(int pieceType, int square, long occupancy) {
+		switch (pieceType) {
+			case Piece.TYPE_BISHOP :
+				return MagicBitboards.getBishopAttacks(square, occupancy);
+			case Piece.TYPE_ROOK :
+				return MagicBitboards.getRookAttacks(square, occupancy);
+			case Piece.TYPE_QUEEN :
+				return MagicBitboards.getQueenAttacks(square, occupancy);
+			case Piece.TYPE_KNIGHT :
+				return AttackTables.getKnightAttacks(square);
+			case Piece.TYPE_KING :
+				return AttackTables.getKingAttacks(square);
+			default :
+				return 0;
+		}
+	}
+
+	/**
+	 * Used to add a move from the source square to every square of the target board.
+	 **/
+	private static int addMoves(Position position, int sourceSquare, int pieceType, long targets, int[] moves, int count) {
+		while (targets != 0) {
+			int targetSquare = Long.numberOfTrailingZeros(targets);
+			moves[count++] = createMove(sourceSquare, targetSquare, pieceType, position.getPieceType(targetSquare));
+			targets &= targets - 1;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Used to find the pieces of a color attacking a square.
+	 *
+	 * @param position
+	 *            The position to check.
+	 *
+	 * @param square
+	 *            The square that might be attacked.
+	 *
+	 * @param attackerColor
+	 *            The color of the attacking pieces.
+	 *
+	 * @param occupancy
+	 *            The occupied squares that block sliding pieces, e.g. with a piece that is about to move taken out.
+	 *
+	 * @return Returns the board of the attacking pieces.
+	 **/
+	public static long getAttackers(Position position, int square, int attackerColor, long occupancy) {
+		long queens = position.getPieces(attackerColor, Piece.TYPE_QUEEN);
+		int defenderColor = 1 - attackerColor;
+
+		// A pawn attacks the square if a pawn of the other color standing there would attack the pawn
+		return (MagicBitboards.getBishopAttacks(square, occupancy) & (position.getPieces(attackerColor, Piece.TYPE_BISHOP) | queens))
+				| (MagicBitboards.getRookAttacks(square, occupancy) & (position.getPieces(attackerColor, Piece.TYPE_ROOK) | queens))
+				| (AttackTables.getKnightAttacks(square) & position.getPieces(attackerColor, Piece.TYPE_KNIGHT))
+				| (AttackTables.getKingAttacks(square) & position.getPieces(attackerColor, Piece.TYPE_KING))
+				| (AttackTables.getPawnAttacks(defenderColor, square) & position.getPieces(attackerColor, Piece.TYPE_PAWN));
+	}
+
+	/**
+	 * Used to check whether a square is attacked by any piece of a color.
+	 *
+	 * @return Returns true if at least one piece of that color attacks the square, false otherwise.
+	 **/
+	public static boolean isSquareAttacked(Position position, int square, int attackerColor) {
+		return getAttackers(position, square, attackerColor, position.getOccupancy()) != 0;
+	}
+
+}
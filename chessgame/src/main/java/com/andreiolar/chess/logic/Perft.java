@@ -0,0 +1,252 @@
+package com.andreiolar.chess.logic;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Perft (performance test) tool. Counts the leaf nodes of the move tree up to a given depth, using {@link ChessGame#makeMove(int)},
+ * {@link ChessGame#undoMove(int)} and the {@link MoveGenerator}. Comparing the counts with known values verifies the move generation,
+ * timing them measures its speed. The generator only emits legal moves, so the counts at the last ply are the number of moves generated.
+ *
+ * Usage:
+ *
+ * <pre>
+ * Perft [--fen "&lt;fen&gt;"] [--divide] [--threads &lt;n&gt;] &lt;depth&gt;
+ * Perft --verify &lt;reference file&gt;
+ * </pre>
+ **/
+public class Perft {
+
+	public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+	private ChessGame chessGame;
+	private int[][] moveBuffers = new int[0][];
+
+	public Perft(ChessGame chessGame) {
+		this.chessGame = chessGame;
+	}
+
+	/**
+	 * Used to count the leaf nodes of the move tree.
+	 *
+	 * @param depth
+	 *            The depth in plies.
+	 *
+	 * @return Returns the number of leaf nodes.
+	 **/
+	public long perft(int depth) {
+		ensureBuffers(depth);
+		return perft(depth, 0);
+	}
+
+	/**
+	 * Used to count the leaf nodes below every root move separately.
+	 *
+	 * @return Returns the number of leaf nodes per root move, in generation order.
+	 **/
+	public Map<String, Long> divide(int depth) {
+		if (depth < 1) {
+			throw new IllegalArgumentException("Invalid depth for divide: " + depth);
+		}
+
+		ensureBuffers(depth);
+		int[] rootMoves = new int[MoveGenerator.MAX_MOVES];
+		int moveCount = MoveGenerator.generateMoves(this.chessGame.getPosition(), rootMoves);
+
+		Map<String, Long> nodesPerMove = new LinkedHashMap<>();
+		for (int i = 0; i < moveCount; i++) {
+			this.chessGame.makeMove(rootMoves[i]);
+			nodesPerMove.put(MoveGenerator.toMove(rootMoves[i]).toString(), perft(depth - 1, 1));
+			this.chessGame.undoMove(rootMoves[i]);
+		}
+
+		return nodesPerMove;
+	}
+
+	private long perft(int depth, int ply) {
+		if (depth == 0) {
+			return 1;
+		}
+
+		int[] buffer = this.moveBuffers[ply];
+		int moveCount = MoveGenerator.generateMoves(this.chessGame.getPosition(), buffer);
+		if (depth == 1) {
+			return moveCount;
+		}
+
+		long nodes = 0;
+		for (int i = 0; i < moveCount; i++) {
+			this.chessGame.makeMove(buffer[i]);
+			nodes += perft(depth - 1, ply + 1);
+			this.chessGame.undoMove(buffer[i]);
+		}
+
+		return nodes;
+	}
+
+	/**
+	 * Used to count the leaf nodes of a position with the root moves split across the threads of a fork-join pool. Each root move is
+	 * searched on its own copy of the game.
+	 *
+	 * @param fen
+	 *            The position.
+	 *
+	 * @param depth
+	 *            The depth in plies.
+	 *
+	 * @param threads
+	 *            The number of worker threads.
+	 *
+	 * @return Returns the number of leaf nodes.
+	 **/
+	public static long perftParallel(final String fen, final int depth, int threads) {
+		if (depth == 0) {
+			return 1;
+		}
+
+		ChessGame chessGame = new ChessGame(fen);
+		int[] rootMoves = new int[MoveGenerator.MAX_MOVES];
+		int moveCount = MoveGenerator.generateMoves(chessGame.getPosition(), rootMoves);
+
+		List<RecursiveTask<Long>> tasks = new ArrayList<>();
+		for (int i = 0; i < moveCount; i++) {
+			final int rootMove = rootMoves[i];
+			tasks.add(new RecursiveTask<Long>() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected Long compute() {
+					ChessGame copy = new ChessGame(fen);
+					copy.makeMove(rootMove);
+					return new Perft(copy).perft(depth - 1);
+				}
+			});
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			long nodes = 0;
+			for (RecursiveTask<Long> task : tasks) {
+				pool.execute(task);
+			}
+			for (RecursiveTask<Long> task : tasks) {
+				nodes += task.join();
+			}
+			return nodes;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private void ensureBuffers(int depth) {
+		if (this.moveBuffers.length < depth) {
+			this.moveBuffers = new int[depth][MoveGenerator.MAX_MOVES];
+		}
+	}
+
+	/**
+	 * Used to check perft counts against a reference file. Every line holds a FEN followed by the expected counts per depth, e.g.
+	 * "&lt;fen&gt; ;D1 20 ;D2 400". Empty lines and lines starting with # are skipped.
+	 *
+	 * @throws IllegalStateException
+	 *             If a count does not match.
+	 **/
+	public static void verify(String referenceFile, int threads) throws IOException {
+		int positions = 0;
+		try (BufferedReader reader = new BufferedReader(new FileReader(referenceFile))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+
+				String[] fields = line.split(";");
+				String fen = fields[0].trim();
+				System.out.println("Perft: " + fen);
+				for (int i = 1; i < fields.length; i++) {
+					String[] depthAndCount = fields[i].trim().split("\\s+");
+					int depth = Integer.parseInt(depthAndCount[0].substring(1));
+					long expected = Long.parseLong(depthAndCount[1]);
+
+					long start = System.nanoTime();
+					long nodes = perftParallel(fen, depth, threads);
+					printResult(depth, nodes, System.nanoTime() - start);
+
+					if (nodes != expected) {
+						throw new IllegalStateException("Perft mismatch for " + fen + " at depth " + depth + ": expected " + expected + ", got "
+							+ nodes);
+					}
+				}
+				positions++;
+			}
+		}
+
+		System.out.println("Perft: all counts of " + positions + " positions match");
+	}
+
+	private static void printResult(int depth, long nodes, long nanos) {
+		double seconds = nanos / 1e9;
+		System.out.println(String.format("  depth %d: %d nodes in %.3f s (%.0f nodes/s)", depth, nodes, seconds,
+				nodes / Math.max(seconds, 1e-9)));
+	}
+
+	public static void main(String[] args) throws IOException {
+		String fen = START_FEN;
+		boolean divide = false;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int depth = -1;
+
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "--fen" :
+					fen = args[++i];
+					break;
+				case "--divide" :
+					divide = true;
+					break;
+				case "--threads" :
+					threads = Integer.parseInt(args[++i]);
+					break;
+				case "--verify" :
+					verify(args[++i], threads);
+					return;
+				default :
+					depth = Integer.parseInt(args[i]);
+					break;
+			}
+		}
+
+		// Dividing needs at least the root moves
+		if (depth < 0 || (divide && depth < 1)) {
+			System.out.println("Usage: Perft [--fen \"<fen>\"] [--divide] [--threads <n>] <depth>");
+			System.out.println("       Perft --verify <reference file>");
+			return;
+		}
+
+		long start = System.nanoTime();
+		long nodes;
+		if (divide) {
+			ChessGame chessGame = new ChessGame(fen);
+			nodes = 0;
+			for (Map.Entry<String, Long> entry : new Perft(chessGame).divide(depth).entrySet()) {
+				System.out.println(entry.getKey() + ": " + entry.getValue());
+				nodes += entry.getValue();
+			}
+		} else if (threads > 1) {
+			nodes = perftParallel(fen, depth, threads);
+		} else {
+			nodes = new Perft(new ChessGame(fen)).perft(depth);
+		}
+
+		printResult(depth, nodes, System.nanoTime() - start);
+	}
+
+}
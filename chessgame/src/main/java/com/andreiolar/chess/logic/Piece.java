@@ -67,6 +67,13 @@ public class Piece {
 		return this.type;
 	}
 
+	/**
+	 * Used to change the type of a pawn when it is promoted, and back when the promotion is taken back.
+	 **/
+	public void setType(int type) {
+		this.type = type;
+	}
+
 	public static String getRowString(int row) {
 		String strRow = "unknown";
 		switch (row) {
@@ -149,6 +156,30 @@ public class Piece {
 		}
 	}
 
+	/**
+	 * Used to get the piece type of a lower case FEN letter (r, n, b, q, k, p).
+	 * 
+	 * @return Returns the type, or 0 if the letter does not stand for a piece.
+	 **/
+	public static int getTypeForFenCharacter(char c) {
+		switch (c) {
+			case 'b' :
+				return TYPE_BISHOP;
+			case 'k' :
+				return TYPE_KING;
+			case 'n' :
+				return TYPE_KNIGHT;
+			case 'p' :
+				return TYPE_PAWN;
+			case 'q' :
+				return TYPE_QUEEN;
+			case 'r' :
+				return TYPE_ROOK;
+			default :
+				return 0;
+		}
+	}
+
 	public static String getColorString(int color) {
 		switch (color) {
 			case COLOR_BLACK :
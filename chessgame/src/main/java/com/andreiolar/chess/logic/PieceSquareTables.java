@@ -0,0 +1,42 @@
+package com.andreiolar.chess.logic;
+
+/**
+ * Material values and piece-square scores used by the evaluation. {@link Position} keeps the sum of both per color up to date while pieces
+ * are added, removed and moved, so evaluating a position does not have to visit its pieces.
+ **/
+public class PieceSquareTables {
+
+	// Indexed by piece type
+	private static final int[] PIECE_VALUES = {0, 50, 30, 30, 90, 99999, 10};
+
+	// Indexed by row and column. Rewards central squares, the same for all pieces and both colors.
+	private static final byte[][] POSITION_WEIGHTS = {{1, 1, 1, 1, 1, 1, 1, 1}, {2, 2, 2, 2, 2, 2, 2, 2}, {2, 2, 3, 3, 3, 3, 2, 2},
+			{2, 2, 3, 4, 4, 3, 2, 2}, {2, 2, 3, 4, 4, 3, 2, 2}, {2, 2, 3, 3, 3, 3, 2, 2}, {2, 2, 2, 2, 2, 2, 2, 2}, {1, 1, 1, 1, 1, 1, 1, 1}};
+
+	private static final int[][][] PIECE_SQUARE_SCORES = new int[2][Piece.TYPE_PAWN + 1][64];
+
+	static {
+		for (int color = Piece.COLOR_WHITE; color <= Piece.COLOR_BLACK; color++) {
+			for (int type = Piece.TYPE_ROOK; type <= Piece.TYPE_PAWN; type++) {
+				for (int square = 0; square < 64; square++) {
+					PIECE_SQUARE_SCORES[color][type][square] = POSITION_WEIGHTS[Position.getRow(square)][Position.getColumn(square)];
+				}
+			}
+		}
+	}
+
+	private PieceSquareTables() {
+	}
+
+	public static int getPieceValue(int type) {
+		return PIECE_VALUES[type];
+	}
+
+	/**
+	 * @return Returns the score of a piece of the given color and type for standing on the square.
+	 **/
+	public static int getPieceSquareScore(int color, int type, int square) {
+		return PIECE_SQUARE_SCORES[color][type][square];
+	}
+
+}
@@ -0,0 +1,485 @@
+package com.andreiolar.chess.logic;
+
+import java.util.Arrays;
+
+/**
+ * Bitboard representation of the pieces on the board. Holds one 64-bit board per piece color and type, plus the occupancy of each color and
+ * the piece type on every square. Also keeps the side to move, the castling rights, the en passant square and the pieces giving check to
+ * the side to move, as well as the Zobrist key, a second Zobrist key of the pawns alone and the material and piece-square sums of each
+ * color up to date, see {@link Zobrist} and {@link PieceSquareTables}.
+ *
+ * Moves played with {@link #makeMove(int)} push the state they change onto a preallocated undo stack, so {@link #undoMove(int)} restores it
+ * instead of computing it back, and neither allocates.
+ *
+ * A copy made by {@link #clone()} is independent of the original, e.g. to search it on another thread.
+ *
+ * Squares are indexed as row * 8 + column, so A1 is bit 0, H1 is bit 7 and H8 is bit 63.
+ **/
+public class Position implements Cloneable {
+
+	public static final int CASTLING_WHITE_KING_SIDE = 1;
+	public static final int CASTLING_WHITE_QUEEN_SIDE = 2;
+	public static final int CASTLING_BLACK_KING_SIDE = 4;
+	public static final int CASTLING_BLACK_QUEEN_SIDE = 8;
+	public static final int CASTLING_ALL = 15;
+
+	/**
+	 * The en passant square of a position in which the last move was no double pawn push.
+	 **/
+	public static final int NO_SQUARE = -1;
+
+	private static final int PIECE_TYPE_COUNT = 6;
+	private static final int INITIAL_UNDO_CAPACITY = 256;
+	private static final int UNDO_ENTRY_SIZE = 6;
+
+	// The castling rights kept when a piece moves from or to a square: moving the king or a rook, or capturing a rook, loses rights
+	private static final int[] CASTLING_RIGHTS_KEPT = new int[64];
+
+	static {
+		Arrays.fill(CASTLING_RIGHTS_KEPT, CASTLING_ALL);
+		CASTLING_RIGHTS_KEPT[getSquare(Piece.ROW_1, Piece.COLUMN_A)] &= ~CASTLING_WHITE_QUEEN_SIDE;
+		CASTLING_RIGHTS_KEPT[getSquare(Piece.ROW_1, Piece.COLUMN_E)] &= ~(CASTLING_WHITE_KING_SIDE | CASTLING_WHITE_QUEEN_SIDE);
+		CASTLING_RIGHTS_KEPT[getSquare(Piece.ROW_1, Piece.COLUMN_H)] &= ~CASTLING_WHITE_KING_SIDE;
+		CASTLING_RIGHTS_KEPT[getSquare(Piece.ROW_8, Piece.COLUMN_A)] &= ~CASTLING_BLACK_QUEEN_SIDE;
+		CASTLING_RIGHTS_KEPT[getSquare(Piece.ROW_8, Piece.COLUMN_E)] &= ~(CASTLING_BLACK_KING_SIDE | CASTLING_BLACK_QUEEN_SIDE);
+		CASTLING_RIGHTS_KEPT[getSquare(Piece.ROW_8, Piece.COLUMN_H)] &= ~CASTLING_BLACK_KING_SIDE;
+	}
+
+	private long[] pieceBoards = new long[2 * PIECE_TYPE_COUNT];
+	private long[] occupancy = new long[2];
+	private byte[] pieceTypes = new byte[64];
+	private int sideToMove = Piece.COLOR_WHITE;
+	private int castlingRights;
+	private int enPassantSquare = NO_SQUARE;
+	private long checkers;
+	private long zobristKey;
+	private long pawnZobristKey;
+	private int[] material = new int[2];
+	private int[] pieceSquareScore = new int[2];
+
+	// Undo stack, six longs per move played: the key, the pawn key, the material and the piece-square sums, the checkers and the castling
+	// rights and en passant square before the move. The sums of white are kept in the high and the sums of black in the low 32 bits.
+	private long[] undoStack = new long[INITIAL_UNDO_CAPACITY * UNDO_ENTRY_SIZE];
+	private int undoStackSize;
+
+	/**
+	 * Used to get the square index of a row and column.
+	 *
+	 * @param row
+	 *            The row.
+	 *
+	 * @param column
+	 *            The column.
+	 *
+	 * @return Returns the square index (0 - 63).
+	 **/
+	public static int getSquare(int row, int column) {
+		return (row << 3) | column;
+	}
+
+	public static int getRow(int square) {
+		return square >>> 3;
+	}
+
+	public static int getColumn(int square) {
+		return square & 7;
+	}
+
+	private static int getBoardIndex(int color, int type) {
+		return color * PIECE_TYPE_COUNT + type - 1;
+	}
+
+	/**
+	 * Used to place a piece on an empty square.
+	 **/
+	public void addPiece(int color, int type, int square) {
+		long bit = 1L << square;
+		this.pieceBoards[getBoardIndex(color, type)] |= bit;
+		this.occupancy[color] |= bit;
+		this.pieceTypes[square] = (byte) type;
+		this.zobristKey ^= Zobrist.getPieceKey(color, type, square);
+		if (type == Piece.TYPE_PAWN) {
+			this.pawnZobristKey ^= Zobrist.getPieceKey(color, type, square);
+		}
+		this.material[color] += PieceSquareTables.getPieceValue(type);
+		this.pieceSquareScore[color] += PieceSquareTables.getPieceSquareScore(color, type, square);
+	}
+
+	/**
+	 * Used to take a piece off its square.
+	 **/
+	public void removePiece(int color, int type, int square) {
+		long bit = ~(1L << square);
+		this.pieceBoards[getBoardIndex(color, type)] &= bit;
+		this.occupancy[color] &= bit;
+		this.pieceTypes[square] = 0;
+		this.zobristKey ^= Zobrist.getPieceKey(color, type, square);
+		if (type == Piece.TYPE_PAWN) {
+			this.pawnZobristKey ^= Zobrist.getPieceKey(color, type, square);
+		}
+		this.material[color] -= PieceSquareTables.getPieceValue(type);
+		this.pieceSquareScore[color] -= PieceSquareTables.getPieceSquareScore(color, type, square);
+	}
+
+	/**
+	 * Used to move a piece to an empty square. Captured pieces have to be removed before.
+	 **/
+	public void movePiece(int color, int type, int sourceSquare, int targetSquare) {
+		long fromTo = (1L << sourceSquare) | (1L << targetSquare);
+		this.pieceBoards[getBoardIndex(color, type)] ^= fromTo;
+		this.occupancy[color] ^= fromTo;
+		this.pieceTypes[sourceSquare] = 0;
+		this.pieceTypes[targetSquare] = (byte) type;
+		long keyChange = Zobrist.getPieceKey(color, type, sourceSquare) ^ Zobrist.getPieceKey(color, type, targetSquare);
+		this.zobristKey ^= keyChange;
+		if (type == Piece.TYPE_PAWN) {
+			this.pawnZobristKey ^= keyChange;
+		}
+		this.pieceSquareScore[color] += PieceSquareTables.getPieceSquareScore(color, type, targetSquare)
+				- PieceSquareTables.getPieceSquareScore(color, type, sourceSquare);
+	}
+
+	/**
+	 * Used to set the state of the position that does not follow from the pieces. Has to be called once all pieces are placed.
+	 *
+	 * @param sideToMove
+	 *            The color to move.
+	 *
+	 * @param castlingRights
+	 *            The castling rights, a combination of the CASTLING_* flags. Rights whose king or rook is not on its square are dropped.
+	 *
+	 * @param enPassantSquare
+	 *            The square a pawn that just advanced two squares passed, or {@link #NO_SQUARE}.
+	 **/
+	public void setState(int sideToMove, int castlingRights, int enPassantSquare) {
+		this.zobristKey ^= getStateKey();
+		this.sideToMove = sideToMove;
+		this.castlingRights = castlingRights & getCastlingRightsInPlace();
+		this.enPassantSquare = enPassantSquare;
+		this.zobristKey ^= getStateKey();
+		this.checkers = MoveGenerator.getAttackers(this, getKingSquare(sideToMove), 1 - sideToMove, getOccupancy());
+	}
+
+	/**
+	 * @return Returns the castling rights whose king and rook still stand on their squares.
+	 **/
+	private int getCastlingRightsInPlace() {
+		int castlingRights = 0;
+		for (int color = Piece.COLOR_WHITE; color <= Piece.COLOR_BLACK; color++) {
+			int row = color == Piece.COLOR_WHITE ? Piece.ROW_1 : Piece.ROW_8;
+			long rooks = getPieces(color, Piece.TYPE_ROOK);
+			if ((getPieces(color, Piece.TYPE_KING) & (1L << getSquare(row, Piece.COLUMN_E))) != 0) {
+				if ((rooks & (1L << getSquare(row, Piece.COLUMN_H))) != 0) {
+					castlingRights |= color == Piece.COLOR_WHITE ? CASTLING_WHITE_KING_SIDE : CASTLING_BLACK_KING_SIDE;
+				}
+				if ((rooks & (1L << getSquare(row, Piece.COLUMN_A))) != 0) {
+					castlingRights |= color == Piece.COLOR_WHITE ? CASTLING_WHITE_QUEEN_SIDE : CASTLING_BLACK_QUEEN_SIDE;
+				}
+			}
+		}
+
+		return castlingRights;
+	}
+
+	/**
+	 * @return Returns the part of the Zobrist key that does not depend on the piece placement.
+	 **/
+	private long getStateKey() {
+		long key = Zobrist.getCastlingKey(this.castlingRights);
+		if (this.sideToMove == Piece.COLOR_BLACK) {
+			key ^= Zobrist.getBlackToMoveKey();
+		}
+		if (this.enPassantSquare != NO_SQUARE) {
+			key ^= Zobrist.getEnPassantKey(this.enPassantSquare);
+		}
+		return key;
+	}
+
+	/**
+	 * Used to play an encoded move of the side to move, see {@link MoveGenerator}. Removes the captured piece, moves the moving piece and,
+	 * when castling, the rook, and remembers the state needed to undo the move. Afterwards the opponent is to move, and the pieces giving
+	 * check to it are looked up once, so {@link #isInCheck()} is a field read.
+	 **/
+	public void makeMove(int move) {
+		pushUndoEntry();
+
+		int color = this.sideToMove;
+		int opponentColor = 1 - color;
+		int sourceSquare = MoveGenerator.getSourceSquare(move);
+		int targetSquare = MoveGenerator.getTargetSquare(move);
+		int pieceType = MoveGenerator.getPieceType(move);
+		int flags = MoveGenerator.getFlags(move);
+
+		this.zobristKey ^= getStateKey();
+
+		if (MoveGenerator.isCapture(move)) {
+			int capturedSquare = flags == MoveGenerator.FLAG_EN_PASSANT ? getEnPassantCaptureSquare(targetSquare) : targetSquare;
+			removePiece(opponentColor, MoveGenerator.getCapturedType(move), capturedSquare);
+		}
+		movePiece(color, pieceType, sourceSquare, targetSquare);
+
+		int promotionType = MoveGenerator.getPromotionType(move);
+		if (promotionType != 0) {
+			removePiece(color, Piece.TYPE_PAWN, targetSquare);
+			addPiece(color, promotionType, targetSquare);
+		} else if (flags == MoveGenerator.FLAG_CASTLING) {
+			movePiece(color, Piece.TYPE_ROOK, getCastlingRookSourceSquare(targetSquare), getCastlingRookTargetSquare(targetSquare));
+		}
+
+		// The en passant square is only set if an opponent pawn could capture there, other positions do not differ from the one without it
+		this.enPassantSquare = NO_SQUARE;
+		if (flags == MoveGenerator.FLAG_DOUBLE_PUSH) {
+			int passedSquare = (sourceSquare + targetSquare) >>> 1;
+			if ((AttackTables.getPawnAttacks(color, passedSquare) & getPieces(opponentColor, Piece.TYPE_PAWN)) != 0) {
+				this.enPassantSquare = passedSquare;
+			}
+		}
+		this.castlingRights &= CASTLING_RIGHTS_KEPT[sourceSquare] & CASTLING_RIGHTS_KEPT[targetSquare];
+		this.sideToMove = opponentColor;
+
+		this.zobristKey ^= getStateKey();
+		this.checkers = MoveGenerator.getAttackers(this, getKingSquare(opponentColor), color, getOccupancy());
+	}
+
+	/**
+	 * Used to take back the last move played by {@link #makeMove(int)}. Only the boards are updated piece by piece, the rest of the state
+	 * is restored from the undo stack.
+	 **/
+	public void undoMove(int move) {
+		int color = 1 - this.sideToMove;
+		int sourceSquare = MoveGenerator.getSourceSquare(move);
+		int targetSquare = MoveGenerator.getTargetSquare(move);
+		int pieceType = MoveGenerator.getPieceType(move);
+		int promotionType = MoveGenerator.getPromotionType(move);
+
+		togglePiece(color, promotionType != 0 ? promotionType : pieceType, targetSquare);
+		this.pieceTypes[targetSquare] = 0;
+		togglePiece(color, pieceType, sourceSquare);
+		this.pieceTypes[sourceSquare] = (byte) pieceType;
+
+		int capturedType = MoveGenerator.getCapturedType(move);
+		int flags = MoveGenerator.getFlags(move);
+		if (capturedType != 0) {
+			int capturedSquare = flags == MoveGenerator.FLAG_EN_PASSANT ? getEnPassantCaptureSquare(targetSquare) : targetSquare;
+			togglePiece(1 - color, capturedType, capturedSquare);
+			this.pieceTypes[capturedSquare] = (byte) capturedType;
+		} else if (flags == MoveGenerator.FLAG_CASTLING) {
+			int rookSourceSquare = getCastlingRookSourceSquare(targetSquare);
+			int rookTargetSquare = getCastlingRookTargetSquare(targetSquare);
+			togglePiece(color, Piece.TYPE_ROOK, rookTargetSquare);
+			this.pieceTypes[rookTargetSquare] = 0;
+			togglePiece(color, Piece.TYPE_ROOK, rookSourceSquare);
+			this.pieceTypes[rookSourceSquare] = Piece.TYPE_ROOK;
+		}
+
+		this.sideToMove = color;
+		popUndoEntry();
+	}
+
+	/**
+	 * Used to pass the move to the opponent, for null-move pruning. Must not be played while the side to move is in check.
+	 **/
+	public void makeNullMove() {
+		pushUndoEntry();
+
+		this.zobristKey ^= getStateKey();
+		this.enPassantSquare = NO_SQUARE;
+		this.sideToMove = 1 - this.sideToMove;
+		this.zobristKey ^= getStateKey();
+
+		// The side that passed was not in check, so the side that did not move is not either
+		this.checkers = 0;
+	}
+
+	public void undoNullMove() {
+		this.sideToMove = 1 - this.sideToMove;
+		popUndoEntry();
+	}
+
+	private void pushUndoEntry() {
+		if (this.undoStackSize == this.undoStack.length) {
+			this.undoStack = Arrays.copyOf(this.undoStack, this.undoStackSize * 2);
+		}
+
+		long[] stack = this.undoStack;
+		int entry = this.undoStackSize;
+		stack[entry] = this.zobristKey;
+		stack[entry + 1] = this.pawnZobristKey;
+		stack[entry + 2] = pack(this.material[Piece.COLOR_WHITE], this.material[Piece.COLOR_BLACK]);
+		stack[entry + 3] = pack(this.pieceSquareScore[Piece.COLOR_WHITE], this.pieceSquareScore[Piece.COLOR_BLACK]);
+		stack[entry + 4] = this.checkers;
+		stack[entry + 5] = pack(this.castlingRights, this.enPassantSquare);
+		this.undoStackSize = entry + UNDO_ENTRY_SIZE;
+	}
+
+	private void popUndoEntry() {
+		long[] stack = this.undoStack;
+		int entry = this.undoStackSize - UNDO_ENTRY_SIZE;
+		this.zobristKey = stack[entry];
+		this.pawnZobristKey = stack[entry + 1];
+		this.material[Piece.COLOR_WHITE] = (int) (stack[entry + 2] >> 32);
+		this.material[Piece.COLOR_BLACK] = (int) stack[entry + 2];
+		this.pieceSquareScore[Piece.COLOR_WHITE] = (int) (stack[entry + 3] >> 32);
+		this.pieceSquareScore[Piece.COLOR_BLACK] = (int) stack[entry + 3];
+		this.checkers = stack[entry + 4];
+		this.castlingRights = (int) (stack[entry + 5] >> 32);
+		this.enPassantSquare = (int) stack[entry + 5];
+		this.undoStackSize = entry;
+	}
+
+	/**
+	 * Used to flip a square on the boards of a piece, without touching the keys and sums.
+	 **/
+	private void togglePiece(int color, int type, int square) {
+		long bit = 1L << square;
+		this.pieceBoards[getBoardIndex(color, type)] ^= bit;
+		this.occupancy[color] ^= bit;
+	}
+
+	private static long pack(int white, int black) {
+		return ((long) white << 32) | (black & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * @return Returns the square of the pawn captured by an en passant capture onto the target square, i.e. the square behind it.
+	 **/
+	static int getEnPassantCaptureSquare(int targetSquare) {
+		return targetSquare ^ 8;
+	}
+
+	/**
+	 * @return Returns the square the rook starts from when the king castles onto the target square.
+	 **/
+	static int getCastlingRookSourceSquare(int kingTargetSquare) {
+		return getColumn(kingTargetSquare) == Piece.COLUMN_G ? kingTargetSquare + 1 : kingTargetSquare - 2;
+	}
+
+	/**
+	 * @return Returns the square the rook ends on when the king castles onto the target square.
+	 **/
+	static int getCastlingRookTargetSquare(int kingTargetSquare) {
+		return getColumn(kingTargetSquare) == Piece.COLUMN_G ? kingTargetSquare - 1 : kingTargetSquare + 1;
+	}
+
+	/**
+	 * @return Returns the board of all pieces of the given color and type.
+	 **/
+	public long getPieces(int color, int type) {
+		return this.pieceBoards[getBoardIndex(color, type)];
+	}
+
+	public long getOccupancy(int color) {
+		return this.occupancy[color];
+	}
+
+	public long getOccupancy() {
+		return this.occupancy[Piece.COLOR_WHITE] | this.occupancy[Piece.COLOR_BLACK];
+	}
+
+	public boolean isOccupied(int square) {
+		return (getOccupancy() & (1L << square)) != 0;
+	}
+
+	public boolean isOccupied(int color, int square) {
+		return (this.occupancy[color] & (1L << square)) != 0;
+	}
+
+	public int getSideToMove() {
+		return this.sideToMove;
+	}
+
+	/**
+	 * @return Returns the castling rights still held, a combination of the CASTLING_* flags.
+	 **/
+	public int getCastlingRights() {
+		return this.castlingRights;
+	}
+
+	/**
+	 * @return Returns the square a pawn of the side to move may capture en passant on, or {@link #NO_SQUARE}.
+	 **/
+	public int getEnPassantSquare() {
+		return this.enPassantSquare;
+	}
+
+	public int getKingSquare(int color) {
+		return Long.numberOfTrailingZeros(getPieces(color, Piece.TYPE_KING));
+	}
+
+	/**
+	 * @return Returns the board of the opponent pieces giving check to the side to move.
+	 **/
+	public long getCheckers() {
+		return this.checkers;
+	}
+
+	/**
+	 * Used to check whether the side to move is in check. The checkers are looked up once per move played, so this is a field read.
+	 *
+	 * @return Returns true if the king of the side to move is attacked.
+	 **/
+	public boolean isInCheck() {
+		return this.checkers != 0;
+	}
+
+	/**
+	 * @return Returns the Zobrist hash of the position: the piece placement, the side to move, the castling rights and the en passant
+	 *         square.
+	 **/
+	public long getZobristKey() {
+		return this.zobristKey;
+	}
+
+	/**
+	 * @return Returns the Zobrist hash of the pawns of both colors, 0 if there are none. Identifies the pawn structure.
+	 **/
+	public long getPawnZobristKey() {
+		return this.pawnZobristKey;
+	}
+
+	/**
+	 * @return Returns the summed material value of all pieces of the color.
+	 **/
+	public int getMaterial(int color) {
+		return this.material[color];
+	}
+
+	/**
+	 * @return Returns the summed piece-square scores of all pieces of the color.
+	 **/
+	public int getPieceSquareScore(int color) {
+		return this.pieceSquareScore[color];
+	}
+
+	/**
+	 * Used to get the type of the piece on a square.
+	 *
+	 * @return Returns the piece type, or 0 if the square is empty.
+	 **/
+	public int getPieceType(int square) {
+		return this.pieceTypes[square];
+	}
+
+	/**
+	 * Used to take a snapshot of the position. The copy starts with an empty undo stack, so moves played before cannot be undone on it.
+	 * 
+	 * @return Returns a copy that shares no state with this position.
+	 **/
+	@Override
+	public Position clone() {
+		try {
+			Position copy = (Position) super.clone();
+			copy.pieceBoards = this.pieceBoards.clone();
+			copy.occupancy = this.occupancy.clone();
+			copy.pieceTypes = this.pieceTypes.clone();
+			copy.material = this.material.clone();
+			copy.pieceSquareScore = this.pieceSquareScore.clone();
+			copy.undoStack = new long[INITIAL_UNDO_CAPACITY * UNDO_ENTRY_SIZE];
+			copy.undoStackSize = 0;
+			return copy;
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -0,0 +1,59 @@
+package com.andreiolar.chess.logic;
+
+import java.util.Random;
+
+/**
+ * Random keys for Zobrist hashing. The hash of a position is the XOR of one key per piece on its square, plus a key when black is to move,
+ * one for the castling rights and one for the file of the en passant square, so it can be updated incrementally while making and undoing
+ * moves.
+ **/
+public class Zobrist {
+
+	private static final long[][][] PIECE_KEYS = new long[2][Piece.TYPE_PAWN + 1][64];
+	private static final long BLACK_TO_MOVE_KEY;
+
+	// Indexed by the castling rights, see Position. No rights have key 0.
+	private static final long[] CASTLING_KEYS = new long[16];
+
+	// Indexed by the column of the en passant square
+	private static final long[] EN_PASSANT_KEYS = new long[8];
+
+	static {
+		// Fixed seed, so keys (and hashes stored by callers) are the same on every run
+		Random random = new Random(0x5EEDC0DEL);
+		for (int color = Piece.COLOR_WHITE; color <= Piece.COLOR_BLACK; color++) {
+			for (int type = Piece.TYPE_ROOK; type <= Piece.TYPE_PAWN; type++) {
+				for (int square = 0; square < 64; square++) {
+					PIECE_KEYS[color][type][square] = random.nextLong();
+				}
+			}
+		}
+		BLACK_TO_MOVE_KEY = random.nextLong();
+		for (int castlingRights = 1; castlingRights < CASTLING_KEYS.length; castlingRights++) {
+			CASTLING_KEYS[castlingRights] = random.nextLong();
+		}
+		for (int column = 0; column < EN_PASSANT_KEYS.length; column++) {
+			EN_PASSANT_KEYS[column] = random.nextLong();
+		}
+	}
+
+	private Zobrist() {
+	}
+
+	public static long getPieceKey(int color, int type, int square) {
+		return PIECE_KEYS[color][type][square];
+	}
+
+	public static long getBlackToMoveKey() {
+		return BLACK_TO_MOVE_KEY;
+	}
+
+	public static long getCastlingKey(int castlingRights) {
+		return CASTLING_KEYS[castlingRights];
+	}
+
+	public static long getEnPassantKey(int square) {
+		return EN_PASSANT_KEYS[square & 7];
+	}
+
+}